@@ -0,0 +1,103 @@
+/**
+ * Copyright 2014 Riyaz Ahamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package ahamed.view.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ahamed.view.utils.Dynamics;
+import ahamed.view.utils.DynamicsBank;
+
+/**
+ * <p>
+ * One animation frame of N springs, stepped as separate {@link Dynamics}
+ * objects and as one {@link DynamicsBank}. Targets flip every 64 frames so
+ * the springs keep moving.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class DynamicsBankBenchmark {
+
+	private static final long FRAME = 16;
+
+	@Param({ "10", "1000", "100000" })
+	int springs;
+
+	private Dynamics[] objects;
+	private DynamicsBank bank;
+	private long now;
+	private int frame;
+
+	@Setup
+	public void setUp() {
+		objects = new Dynamics[springs];
+		bank = new DynamicsBank(springs, 80f, 0.8f);
+		for (int i = 0; i < springs; i++) {
+			objects[i] = new Dynamics(80f, 0.8f);
+			objects[i].setPosition(0, now);
+			bank.setPosition(i, 0, now);
+		}
+		retarget();
+	}
+
+	private void retarget() {
+		boolean even = (frame / 64) % 2 == 0;
+		for (int i = 0; i < springs; i++) {
+			float target = even ? 100 + i % 100 : 0;
+			objects[i].setTargetPosition(target, now);
+			bank.setTargetPosition(i, target, now);
+		}
+	}
+
+	private void nextFrame() {
+		now += FRAME;
+		if (++frame % 64 == 0) {
+			retarget();
+		}
+	}
+
+	@Benchmark
+	public float perObject() {
+		nextFrame();
+		for (int i = 0; i < springs; i++) {
+			objects[i].update(now);
+		}
+		return objects[springs - 1].getPosition();
+	}
+
+	@Benchmark
+	public float bank() {
+		nextFrame();
+		bank.update(now);
+		return bank.getPosition(springs - 1);
+	}
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright 2014 Riyaz Ahamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package ahamed.view.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ahamed.view.utils.ColorDynamics;
+import ahamed.view.utils.Dynamics;
+
+/**
+ * <p>
+ * One animation frame of the per-slice springs and of the color springs, as
+ * the views step them, at several slice counts. Targets flip every 64 frames
+ * so the springs keep moving.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DynamicsBenchmark {
+
+	private static final long FRAME = 16;
+
+	@Param({ "10", "100", "1000" })
+	int slices;
+
+	private Dynamics[] springs;
+	private ColorDynamics[] colors;
+	private long now;
+	private int frame;
+
+	@Setup
+	public void setUp() {
+		springs = new Dynamics[slices];
+		colors = new ColorDynamics[slices];
+		for (int i = 0; i < slices; i++) {
+			springs[i] = new Dynamics(80f, 0.8f);
+			springs[i].setPosition(0, now);
+			colors[i] = new ColorDynamics();
+			colors[i].setColor(0xFF0099CC, now);
+		}
+		retarget();
+	}
+
+	private void retarget() {
+		boolean even = (frame / 64) % 2 == 0;
+		for (int i = 0; i < slices; i++) {
+			springs[i].setTargetPosition(even ? 100 + i : 0, now);
+			colors[i].setTargetColor(even ? 0xFFFF8800 : 0xFF0099CC, now);
+		}
+	}
+
+	private void nextFrame() {
+		now += FRAME;
+		if (++frame % 64 == 0) {
+			retarget();
+		}
+	}
+
+	@Benchmark
+	public float dynamicsUpdate() {
+		nextFrame();
+		float sum = 0;
+		for (int i = 0; i < slices; i++) {
+			springs[i].update(now);
+			sum += springs[i].getPosition();
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public int colorDynamicsUpdateAndGetColor() {
+		nextFrame();
+		int hash = 0;
+		for (int i = 0; i < slices; i++) {
+			colors[i].update(now);
+			hash ^= colors[i].getColor();
+		}
+		return hash;
+	}
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright 2014 Riyaz Ahamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package ahamed.view.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ahamed.view.utils.PieGeometry;
+
+/**
+ * <p>
+ * The touch path of the pie: the angle of a touch point and the slice under
+ * it, at several slice counts, plus the per-frame angle update.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PieGeometryBenchmark {
+
+	private static final int POINTS = 1024;
+
+	@Param({ "10", "100", "1000", "10000" })
+	int slices;
+
+	private final PieGeometry geometry = new PieGeometry();
+	private double[] values;
+	private double total;
+	private final float[] touchX = new float[POINTS];
+	private final float[] touchY = new float[POINTS];
+	private int point;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(42);
+		values = new double[slices];
+		total = 0;
+		for (int i = 0; i < slices; i++) {
+			values[i] = 1 + random.nextInt(100);
+			total += values[i];
+		}
+		geometry.setCount(slices);
+		geometry.update(values, total);
+		for (int i = 0; i < POINTS; i++) {
+			touchX[i] = random.nextFloat() * 400;
+			touchY[i] = random.nextFloat() * 400;
+		}
+	}
+
+	@Benchmark
+	public float angleOf() {
+		int i = point++ & (POINTS - 1);
+		return PieGeometry.angleOf(touchX[i], touchY[i], 200, 200);
+	}
+
+	@Benchmark
+	public int angleOfAndIndexOf() {
+		int i = point++ & (POINTS - 1);
+		return geometry.indexOf(PieGeometry.angleOf(touchX[i], touchY[i],
+				200, 200));
+	}
+
+	@Benchmark
+	public float update() {
+		geometry.update(values, total);
+		return geometry.getEndAngle(slices - 1);
+	}
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright 2014 Riyaz Ahamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package ahamed.view.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Checks that a {@link DynamicsBank} moves its springs exactly like the same
+ * number of {@link Dynamics} objects.
+ */
+public class DynamicsBankTest {
+
+	private static final int SPRINGS = 16;
+
+	@Test
+	public void variableTimestepMatchesDynamics() {
+		assertSamePositions(false);
+	}
+
+	@Test
+	public void fixedTimestepMatchesDynamics() {
+		assertSamePositions(true);
+	}
+
+	private void assertSamePositions(boolean fixedTimestep) {
+		Dynamics[] objects = new Dynamics[SPRINGS];
+		DynamicsBank bank = new DynamicsBank(SPRINGS, 80f, 0.8f);
+		bank.setFixedTimestep(fixedTimestep);
+		long now = 1000;
+		for (int i = 0; i < SPRINGS; i++) {
+			objects[i] = new Dynamics(80f, 0.8f);
+			objects[i].setFixedTimestep(fixedTimestep);
+			objects[i].setPosition(i * 3, now);
+			objects[i].setTargetPosition(100 - i, now);
+			bank.setPosition(i, i * 3, now);
+			bank.setTargetPosition(i, 100 - i, now);
+		}
+		// uneven frames, a stall and a retarget half way
+		long[] frames = { 16, 17, 15, 33, 8, 120, 16, 1, 16, 2000, 16 };
+		for (int f = 0; f < 200; f++) {
+			now += frames[f % frames.length];
+			if (f == 100) {
+				for (int i = 0; i < SPRINGS; i++) {
+					objects[i].setTargetPosition(-i, now);
+					bank.setTargetPosition(i, -i, now);
+				}
+			}
+			bank.update(now);
+			for (int i = 0; i < SPRINGS; i++) {
+				objects[i].update(now);
+				assertEquals("position of spring " + i + " in frame " + f,
+						objects[i].getPosition(), bank.getPosition(i), 0f);
+				assertEquals("velocity of spring " + i + " in frame " + f,
+						objects[i].getVelocity(), bank.getVelocity(i), 0f);
+			}
+		}
+	}
+}
@@ -0,0 +1,898 @@
+/**
+ * Copyright 2014 Riyaz Ahamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package ahamed.view;
+
+import java.util.ArrayList;
+
+import ahamed.view.utils.ColorDynamics;
+import ahamed.view.utils.Dynamics;
+import ahamed.view.utils.FrameScheduler;
+import ahamed.view.utils.FrameScheduler.FrameCallback;
+import ahamed.view.utils.FrameStats;
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.database.DataSetObserver;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.StateListDrawable;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.VelocityTracker;
+import android.view.View;
+import android.view.View.OnClickListener;
+import android.view.ViewConfiguration;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.view.animation.AnimationUtils;
+import android.widget.Adapter;
+import android.widget.FrameLayout;
+
+/**
+ * <p>
+ * A tab strip that divides its width evenly between its children and slides
+ * a colored indicator under, or above, the chosen one. Uses Dynamics to
+ * animate the indicator's position and color.<br>
+ * The side of the indicator is set with the <code>indicatorGravity</code>
+ * attribute or {@link #setIndicatorGravity(int)}.<br>
+ * Given an {@link Adapter} the chooser scrolls instead, with items of a fixed
+ * width. Only the visible items are attached and the ones scrolling out of
+ * view are recycled, so any number of items costs the same. The scroll
+ * position follows the indicator and keeps the chosen item centered.<br>
+ * The indicator can be dragged, and flung, onto any item.
+ * </p>
+ *
+ * @author Riyaz Ahamed <br>
+ *         Send Feedbacks to dev.ahamed(at)outlook.com
+ */
+public class Chooser extends FrameLayout implements OnClickListener {
+
+	public interface OnItemChosenListener {
+		public void onItemChosen(int item);
+	}
+
+	/** The indicator is drawn above the items */
+	public static final int INDICATOR_GRAVITY_TOP = 0;
+
+	/** The indicator is drawn below the items */
+	public static final int INDICATOR_GRAVITY_BOTTOM = 1;
+
+	private static final int INDICATOR_HEIGHT = 8;
+
+	private static final int ITEM_WIDTH_DP = 96;
+
+	/**
+	 * How far ahead of a fling, in seconds of its release velocity, the
+	 * indicator looks for the item to snap to
+	 */
+	private static final float FLING_PROJECTION = 0.2f;
+
+	/** Motion left below which the indicator snaps to its target, in px */
+	private static final float SETTLE_TOLERANCE = 1f;
+
+	private Dynamics offset = new Dynamics(120f, 0.8f);
+	private Paint paint = new Paint();
+	private RectF indicationRect = new RectF();
+	private ColorDynamics indicatorColor = new ColorDynamics();
+
+	private int indicatorGravity;
+
+	// inputs and results of the last measure pass
+	private int lastWidthMeasureSpec;
+	private int lastHeightMeasureSpec;
+	private int lastChildCount = -1;
+	private final int[] lastPadding = new int[4];
+	private int childWidth;
+	private int childHeight;
+	private int childTop;
+	private boolean layoutDirty = true;
+
+	// adapter mode, the offset is in item coordinates then
+	private Adapter adapter;
+	private int itemCount;
+	private int itemWidth;
+	private int selectedItem;
+	private int firstAttached;
+	private int scrollX;
+	private boolean indicatorColorPending;
+	private ArrayList<ArrayList<View>> scrapViews = new ArrayList<ArrayList<View>>();
+
+	// drag and fling of the indicator
+	private VelocityTracker velocityTracker;
+	private int touchSlop;
+	private int minFlingVelocity;
+	private int maxFlingVelocity;
+	private float downX;
+	private float lastTouchX;
+	private boolean dragging;
+
+	private DataSetObserver dataSetObserver = new DataSetObserver() {
+		@Override
+		public void onChanged() {
+			onItemsChanged();
+		}
+
+		@Override
+		public void onInvalidated() {
+			onItemsChanged();
+		}
+	};
+
+	private FrameStats frameStats;
+	private long animationStart;
+
+	private FrameCallback animator = new FrameCallback() {
+		@Override
+		public boolean doFrame(long now) {
+			final FrameStats stats = frameStats;
+			long start = stats != null ? System.nanoTime() : 0;
+			boolean wasAtRest = offset.isAtRest() && indicatorColor.isAtRest();
+
+			boolean scheduleNewFrame = false;
+			offset.update(now);
+			if (!offset.isAtRest()
+					&& !offset.snapToTargetIfSettled(SETTLE_TOLERANCE)) {
+				scheduleNewFrame = true;
+			}
+
+			indicatorColor.update(now);
+			if (!indicatorColor.isAtRest()
+					&& !indicatorColor.snapToTargetIfSettled(SETTLE_TOLERANCE)) {
+				scheduleNewFrame = true;
+			}
+
+			if (adapter != null && fillItems()) {
+				// the items and dividers scrolled
+				invalidate();
+			} else {
+				invalidate(0, (int) indicationRect.top, getWidth(),
+						(int) indicationRect.bottom);
+			}
+
+			if (stats != null) {
+				stats.recordStep(System.nanoTime() - start, !wasAtRest);
+				// a drag holds the spring at rest, that is no settle
+				if (!scheduleNewFrame && !dragging) {
+					stats.recordSettle(now - animationStart);
+				}
+			}
+			return scheduleNewFrame;
+		}
+	};
+
+	private OnItemChosenListener listener;
+
+	public Chooser(Context context, AttributeSet attrs) {
+		this(context, attrs, INDICATOR_GRAVITY_BOTTOM);
+	}
+
+	/**
+	 * @param defaultGravity
+	 *            indicator gravity used when the attributes do not set one
+	 */
+	protected Chooser(Context context, AttributeSet attrs, int defaultGravity) {
+		super(context, attrs);
+		TypedArray a = context.obtainStyledAttributes(attrs,
+				R.styleable.Chooser);
+		indicatorGravity = a.getInt(R.styleable.Chooser_indicatorGravity,
+				defaultGravity);
+		a.recycle();
+
+		itemWidth = (int) (ITEM_WIDTH_DP
+				* context.getResources().getDisplayMetrics().density);
+		ViewConfiguration configuration = ViewConfiguration.get(context);
+		touchSlop = configuration.getScaledTouchSlop();
+		minFlingVelocity = configuration.getScaledMinimumFlingVelocity();
+		maxFlingVelocity = configuration.getScaledMaximumFlingVelocity();
+		paint.setAntiAlias(true);
+		setWillNotDraw(false);
+	}
+
+	public void setOnItemChosenListener(OnItemChosenListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * @param gravity
+	 *            {@link #INDICATOR_GRAVITY_TOP} or
+	 *            {@link #INDICATOR_GRAVITY_BOTTOM}
+	 */
+	public void setIndicatorGravity(int gravity) {
+		if (indicatorGravity != gravity) {
+			indicatorGravity = gravity;
+			layoutDirty = true;
+			updateIndicationRect();
+			requestLayout();
+			invalidate();
+		}
+	}
+
+	public int getIndicatorGravity() {
+		return indicatorGravity;
+	}
+
+	/**
+	 * Animates the indicator with fixed timestep integration, which makes the
+	 * animation independent of the display's frame rate.
+	 *
+	 * @see Dynamics#setFixedTimestep(boolean)
+	 */
+	public void setFixedTimestep(boolean fixedTimestep) {
+		offset.setFixedTimestep(fixedTimestep);
+		indicatorColor.setFixedTimestep(fixedTimestep);
+	}
+
+	/**
+	 * Collects animation step, settle and draw timings into the given stats,
+	 * or stops collecting them when null.
+	 */
+	public void setFrameStats(FrameStats stats) {
+		frameStats = stats;
+	}
+
+	public int getColor() {
+		return indicatorColor.getColor();
+	}
+
+	/**
+	 * Replaces the children with the items of the given adapter and makes the
+	 * chooser scroll, or returns to an empty chooser of children when null.
+	 */
+	public void setAdapter(Adapter adapter) {
+		if (this.adapter != null) {
+			this.adapter.unregisterDataSetObserver(dataSetObserver);
+		}
+		removeAllViews();
+		scrapViews.clear();
+		this.adapter = adapter;
+		long now = AnimationUtils.currentAnimationTimeMillis();
+		offset.setPosition(0, now);
+		offset.setVelocity(0, now);
+		offset.setTargetPosition(0, now);
+		selectedItem = 0;
+		firstAttached = 0;
+		scrollX = 0;
+		itemCount = 0;
+		if (adapter != null) {
+			adapter.registerDataSetObserver(dataSetObserver);
+			itemCount = adapter.getCount();
+			for (int i = 0; i < adapter.getViewTypeCount(); i++) {
+				scrapViews.add(new ArrayList<View>());
+			}
+			indicatorColorPending = true;
+		}
+		layoutDirty = true;
+		lastChildCount = -1;
+		requestLayout();
+		invalidate();
+	}
+
+	public Adapter getAdapter() {
+		return adapter;
+	}
+
+	/**
+	 * Sets the width of the items of an adapter, 96dp by default.
+	 */
+	public void setItemWidth(int width) {
+		width = Math.max(1, width);
+		if (itemWidth != width) {
+			itemWidth = width;
+			if (adapter != null) {
+				long now = AnimationUtils.currentAnimationTimeMillis();
+				offset.setPosition(selectedItem * width, now);
+				offset.setTargetPosition(selectedItem * width, now);
+			}
+			layoutDirty = true;
+			lastChildCount = -1;
+			requestLayout();
+		}
+	}
+
+	/**
+	 * Moves the indicator to the given item of the adapter, scrolling it to
+	 * the center.
+	 */
+	public void setSelectedItem(int item) {
+		if (adapter == null || item < 0 || item >= itemCount) {
+			return;
+		}
+		selectedItem = item;
+		long now = AnimationUtils.currentAnimationTimeMillis();
+		offset.setTargetPosition(item * itemWidth, now);
+		int index = item - firstAttached;
+		if (index >= 0 && index < getChildCount()) {
+			indicatorColor.setTargetColor(getLayoutColor(getChildAt(index)),
+					now);
+			indicatorColorPending = false;
+		} else {
+			// taken from the item once it is scrolled in and laid out
+			indicatorColorPending = true;
+		}
+		startAnimation(now);
+	}
+
+	public int getSelectedItem() {
+		return selectedItem;
+	}
+
+	/**
+	 * Predicts from the spring constants and their current state how long the
+	 * indicator takes to come to rest, i.e. until its offset and color stay
+	 * within the tolerance at which the animation snaps and stops.
+	 *
+	 * @return remaining animation time in ms, 0 if the indicator is at rest
+	 */
+	public long getSettleTime() {
+		return Math.max(offset.getSettleTime(SETTLE_TOLERANCE),
+				indicatorColor.getSettleTime(SETTLE_TOLERANCE));
+	}
+
+	@Override
+	public void onClick(View view) {
+		if (adapter != null) {
+			int item = firstAttached + indexOfChild(view);
+			setSelectedItem(item);
+			dispatchItemChosen(item);
+			return;
+		}
+		setSelectedView(view);
+		dispatchItemChosen(indexOfChild(view));
+	}
+
+	public void setSelectedView(View view) {
+		if (adapter != null) {
+			setSelectedItem(firstAttached + indexOfChild(view));
+			return;
+		}
+		long now = AnimationUtils.currentAnimationTimeMillis();
+		offset.setTargetPosition(view.getLeft(), now);
+		invalidate();
+
+		int color = getLayoutColor(view);
+		indicatorColor.setTargetColor(color, now);
+
+		startAnimation(now);
+	}
+
+	/**
+	 * Called when the user chooses an item, notifies the listener.
+	 */
+	protected void dispatchItemChosen(int item) {
+		if (listener != null) {
+			listener.onItemChosen(item);
+		}
+	}
+
+	@Override
+	public LayoutParams generateLayoutParams(AttributeSet attrs) {
+		return new Chooser.LayoutParams(getContext(), attrs);
+	}
+
+	@SuppressWarnings("deprecation")
+	@Override
+	public void addView(View child, int index, ViewGroup.LayoutParams params) {
+		super.addView(child, index, params);
+
+		child.setOnClickListener(this);
+		int color = getLayoutColor(child);
+		child.setBackgroundDrawable(createBackgroundDrawable(color));
+
+		if (getChildCount() == 1) {
+			long now = AnimationUtils.currentAnimationTimeMillis();
+			indicatorColor.setColor(color, now);
+		}
+	}
+
+	@Override
+	protected void onAttachedToWindow() {
+		super.onAttachedToWindow();
+		// resume an animation cut short by the detach
+		if (!offset.isAtRest() || !indicatorColor.isAtRest()) {
+			startAnimation(AnimationUtils.currentAnimationTimeMillis());
+		}
+	}
+
+	@Override
+	protected void onDetachedFromWindow() {
+		super.onDetachedFromWindow();
+		FrameScheduler.getInstance().unregister(animator);
+		if (velocityTracker != null) {
+			velocityTracker.recycle();
+			velocityTracker = null;
+		}
+		dragging = false;
+	}
+
+	@Override
+	public boolean onInterceptTouchEvent(MotionEvent event) {
+		switch (event.getActionMasked()) {
+		case MotionEvent.ACTION_DOWN:
+			startTouch(event);
+			break;
+		case MotionEvent.ACTION_MOVE:
+			if (velocityTracker != null && !dragging) {
+				velocityTracker.addMovement(event);
+				startDragIfMoved(event.getX());
+			}
+			break;
+		}
+		// a drag takes the events away from the pressed item
+		return dragging;
+	}
+
+	@Override
+	public boolean onTouchEvent(MotionEvent event) {
+		switch (event.getActionMasked()) {
+		case MotionEvent.ACTION_DOWN:
+			startTouch(event);
+			return getGestureItemCount() > 0;
+		case MotionEvent.ACTION_MOVE:
+			if (velocityTracker == null) {
+				break;
+			}
+			velocityTracker.addMovement(event);
+			float x = event.getX();
+			startDragIfMoved(x);
+			if (dragging) {
+				drag(x - lastTouchX);
+				lastTouchX = x;
+			}
+			return true;
+		case MotionEvent.ACTION_UP:
+			if (dragging) {
+				velocityTracker.addMovement(event);
+				velocityTracker.computeCurrentVelocity(1000, maxFlingVelocity);
+				fling(velocityTracker.getXVelocity());
+			}
+			return true;
+		case MotionEvent.ACTION_CANCEL:
+			if (dragging) {
+				fling(0f);
+			}
+			return true;
+		}
+		return super.onTouchEvent(event);
+	}
+
+	private void startTouch(MotionEvent event) {
+		if (velocityTracker == null) {
+			velocityTracker = VelocityTracker.obtain();
+		} else {
+			velocityTracker.clear();
+		}
+		velocityTracker.addMovement(event);
+		downX = event.getX();
+		lastTouchX = downX;
+		dragging = false;
+	}
+
+	private void startDragIfMoved(float x) {
+		if (dragging || getGestureItemCount() == 0
+				|| Math.abs(x - downX) <= touchSlop) {
+			return;
+		}
+		dragging = true;
+		lastTouchX = x;
+		ViewParent parent = getParent();
+		if (parent != null) {
+			parent.requestDisallowInterceptTouchEvent(true);
+		}
+	}
+
+	/**
+	 * Moves the indicator with the finger. The spring is held at rest on the
+	 * finger, its step draws the indicator and scrolls the items. With an
+	 * adapter the finger moves the items instead, like any scrolling list,
+	 * so the indicator moves the other way.
+	 */
+	private void drag(float dx) {
+		if (adapter != null) {
+			dx = -dx;
+		}
+		int last = getGestureItemCount() - 1;
+		float position = Math.max(getItemOffset(0),
+				Math.min(getItemOffset(last), offset.getPosition() + dx));
+		long now = AnimationUtils.currentAnimationTimeMillis();
+		offset.setPosition(position, now);
+		offset.setVelocity(0, now);
+		offset.setTargetPosition(position, now);
+		startAnimation(now);
+	}
+
+	/**
+	 * Releases the indicator with the given velocity, in px per second, and
+	 * lets the spring carry it to the item nearest to where the fling heads.
+	 */
+	private void fling(float velocity) {
+		dragging = false;
+		if (adapter != null) {
+			// the finger flung the items, the indicator heads the other way
+			velocity = -velocity;
+		}
+		float projected = offset.getPosition();
+		if (Math.abs(velocity) >= minFlingVelocity) {
+			projected += velocity * FLING_PROJECTION;
+		}
+		int item = Math.round((projected - getItemOffset(0))
+				/ (getItemOffset(1) - getItemOffset(0)));
+		item = Math.max(0, Math.min(getGestureItemCount() - 1, item));
+
+		offset.setVelocity(velocity, AnimationUtils.currentAnimationTimeMillis());
+		if (adapter != null) {
+			setSelectedItem(item);
+		} else {
+			setSelectedView(getChildAt(item));
+		}
+		dispatchItemChosen(item);
+	}
+
+	private int getGestureItemCount() {
+		return adapter != null ? itemCount : getChildCount();
+	}
+
+	/**
+	 * @return the indicator offset of the given item
+	 */
+	private float getItemOffset(int item) {
+		if (adapter != null) {
+			return item * itemWidth;
+		}
+		return getPaddingLeft() + item * childWidth;
+	}
+
+	@Override
+	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+
+		int childCount = getChildCount();
+		boolean paddingChanged = updateLastPadding();
+		if (widthMeasureSpec == lastWidthMeasureSpec
+				&& heightMeasureSpec == lastHeightMeasureSpec
+				&& childCount == lastChildCount && !paddingChanged
+				&& !isChildLayoutRequested()) {
+			// a layout request of this view alone, the children keep their size
+			setMeasuredDimension(getMeasuredWidth(), getMeasuredHeight());
+			return;
+		}
+		lastWidthMeasureSpec = widthMeasureSpec;
+		lastHeightMeasureSpec = heightMeasureSpec;
+		lastChildCount = childCount;
+		layoutDirty = true;
+
+		int width = MeasureSpec.getSize(widthMeasureSpec) - getPaddingLeft()
+				- getPaddingRight();
+		if (adapter != null) {
+			childWidth = itemWidth;
+		} else {
+			childWidth = childCount == 0 ? 0 : width / childCount;
+		}
+		int childWidthMeasureSpec = MeasureSpec.makeMeasureSpec(childWidth,
+				MeasureSpec.EXACTLY);
+
+		int height = MeasureSpec.getSize(heightMeasureSpec) - getPaddingTop()
+				- getPaddingBottom() - INDICATOR_HEIGHT;
+		int heightMode = MeasureSpec.getMode(heightMeasureSpec);
+		int childHeightMeasureSpec = MeasureSpec.makeMeasureSpec(height,
+				heightMode);
+
+		int maxChildHeight = 0;
+		if (adapter != null && childCount == 0 && itemCount > 0) {
+			// no items attached yet, the first one tells the height
+			View item = obtainItem(0);
+			item.measure(childWidthMeasureSpec, childHeightMeasureSpec);
+			maxChildHeight = item.getMeasuredHeight();
+			recycleItem(item, 0);
+		}
+		for (int i = 0; i < childCount; i++) {
+			View child = getChildAt(i);
+			child.measure(childWidthMeasureSpec, childHeightMeasureSpec);
+			int childMeasuredHeight = child.getMeasuredHeight();
+			if (childMeasuredHeight > maxChildHeight) {
+				maxChildHeight = childMeasuredHeight;
+			}
+		}
+
+		// only the children shorter than the tallest are measured again
+		childHeightMeasureSpec = MeasureSpec.makeMeasureSpec(maxChildHeight,
+				MeasureSpec.EXACTLY);
+		for (int i = 0; i < childCount; i++) {
+			View child = getChildAt(i);
+			if (child.getMeasuredHeight() != maxChildHeight) {
+				child.measure(childWidthMeasureSpec, childHeightMeasureSpec);
+			}
+		}
+
+		childHeight = maxChildHeight;
+
+		setMeasuredDimension(width + getPaddingLeft() + getPaddingRight(),
+				maxChildHeight + INDICATOR_HEIGHT + getPaddingBottom()
+						+ getPaddingTop());
+		updateIndicationRect();
+	}
+
+	/**
+	 * @return true if the padding differs from the last measure pass
+	 */
+	private boolean updateLastPadding() {
+		boolean changed = lastPadding[0] != getPaddingLeft()
+				|| lastPadding[1] != getPaddingTop()
+				|| lastPadding[2] != getPaddingRight()
+				|| lastPadding[3] != getPaddingBottom();
+		lastPadding[0] = getPaddingLeft();
+		lastPadding[1] = getPaddingTop();
+		lastPadding[2] = getPaddingRight();
+		lastPadding[3] = getPaddingBottom();
+		return changed;
+	}
+
+	private boolean isChildLayoutRequested() {
+		for (int i = getChildCount() - 1; i >= 0; i--) {
+			if (getChildAt(i).isLayoutRequested()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void updateIndicationRect() {
+		int indicationTop = getPaddingTop();
+		if (indicatorGravity == INDICATOR_GRAVITY_BOTTOM) {
+			indicationTop = getMeasuredHeight() - getPaddingBottom()
+					- INDICATOR_HEIGHT;
+		}
+		indicationRect.set(0, indicationTop, childWidth, indicationTop
+				+ INDICATOR_HEIGHT);
+	}
+
+	@Override
+	protected void onLayout(boolean changed, int left, int top, int right,
+			int bottom) {
+		if (!changed && !layoutDirty) {
+			return;
+		}
+		layoutDirty = false;
+		int childCount = getChildCount();
+		childTop = getPaddingTop();
+		if (indicatorGravity == INDICATOR_GRAVITY_TOP) {
+			childTop += INDICATOR_HEIGHT;
+		}
+		if (adapter != null) {
+			for (int i = childCount - 1; i >= 0; i--) {
+				recycleItem(getChildAt(i), firstAttached + i);
+			}
+			fillItems();
+			return;
+		}
+
+		for (int i = 0; i < childCount; i++) {
+			View child = getChildAt(i);
+
+			final int childMeasuredWidth = child.getMeasuredWidth();
+			final int childMeasuredHeight = child.getMeasuredHeight();
+
+			int childLeft = (int) (getPaddingLeft() + i * childWidth);
+			child.layout(childLeft, childTop, childLeft + childMeasuredWidth,
+					childTop + childMeasuredHeight);
+		}
+	}
+
+	@Override
+	protected void onDraw(Canvas canvas) {
+		final FrameStats stats = frameStats;
+		long start = stats != null ? System.nanoTime() : 0;
+		drawIndicator(canvas);
+		drawDividers(canvas);
+		if (stats != null) {
+			stats.recordDraw(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Scrolls to keep the indicator centered, attaches the items that became
+	 * visible and recycles the ones that left the view.
+	 *
+	 * @return true if the scroll position changed
+	 */
+	private boolean fillItems() {
+		int width = getWidth() - getPaddingLeft() - getPaddingRight();
+		int maxScroll = Math.max(0, itemCount * itemWidth - width);
+		int newScrollX = Math.round(offset.getPosition()) + itemWidth / 2
+				- width / 2;
+		newScrollX = Math.max(0, Math.min(maxScroll, newScrollX));
+		boolean scrolled = newScrollX != scrollX;
+		scrollX = newScrollX;
+
+		int first = scrollX / itemWidth;
+		int last = Math.min(itemCount, (scrollX + width - 1) / itemWidth + 1) - 1;
+
+		int childCount = getChildCount();
+		while (childCount > 0 && firstAttached < first) {
+			recycleItem(getChildAt(0), firstAttached);
+			firstAttached++;
+			childCount--;
+		}
+		while (childCount > 0 && firstAttached + childCount - 1 > last) {
+			childCount--;
+			recycleItem(getChildAt(childCount), firstAttached + childCount);
+		}
+		if (childCount == 0) {
+			firstAttached = first;
+		}
+		while (firstAttached > first) {
+			firstAttached--;
+			attachItem(firstAttached, 0);
+		}
+		for (int item = firstAttached + getChildCount(); item <= last; item++) {
+			attachItem(item, -1);
+		}
+
+		childCount = getChildCount();
+		for (int i = 0; i < childCount; i++) {
+			View child = getChildAt(i);
+			int childLeft = getPaddingLeft() + (firstAttached + i) * itemWidth
+					- scrollX;
+			if (child.getLeft() != childLeft) {
+				child.offsetLeftAndRight(childLeft - child.getLeft());
+			}
+		}
+		return scrolled;
+	}
+
+	private void attachItem(int item, int index) {
+		View child = obtainItem(item);
+		ViewGroup.LayoutParams params = child.getLayoutParams();
+		if (params == null) {
+			params = generateDefaultLayoutParams();
+		}
+		addViewInLayout(child, index, params, true);
+		child.measure(
+				MeasureSpec.makeMeasureSpec(itemWidth, MeasureSpec.EXACTLY),
+				MeasureSpec.makeMeasureSpec(childHeight, MeasureSpec.EXACTLY));
+		int childLeft = getPaddingLeft() + item * itemWidth - scrollX;
+		child.layout(childLeft, childTop, childLeft + itemWidth, childTop
+				+ childHeight);
+
+		if (indicatorColorPending && item == selectedItem) {
+			long now = AnimationUtils.currentAnimationTimeMillis();
+			indicatorColor.setTargetColor(getLayoutColor(child), now);
+			indicatorColorPending = false;
+			startAnimation(now);
+		}
+	}
+
+	/**
+	 * @return the adapter's view for the item, reusing a recycled view of the
+	 *         same type
+	 */
+	@SuppressWarnings("deprecation")
+	private View obtainItem(int item) {
+		int type = adapter.getItemViewType(item);
+		View convertView = null;
+		if (type >= 0 && type < scrapViews.size()) {
+			ArrayList<View> scrap = scrapViews.get(type);
+			if (!scrap.isEmpty()) {
+				convertView = scrap.remove(scrap.size() - 1);
+			}
+		}
+		View view = adapter.getView(item, convertView, this);
+		if (view != convertView) {
+			view.setOnClickListener(this);
+			view.setBackgroundDrawable(createBackgroundDrawable(getLayoutColor(view)));
+		}
+		return view;
+	}
+
+	private void recycleItem(View view, int item) {
+		if (view.getParent() == this) {
+			removeViewInLayout(view);
+		}
+		int type = adapter.getItemViewType(item);
+		if (type >= 0 && type < scrapViews.size()) {
+			scrapViews.get(type).add(view);
+		}
+	}
+
+	private void onItemsChanged() {
+		// the attached views may show items that moved, start over
+		removeAllViewsInLayout();
+		for (int i = 0; i < scrapViews.size(); i++) {
+			scrapViews.get(i).clear();
+		}
+		itemCount = adapter.getCount();
+		firstAttached = 0;
+		// the selected item may now have another color
+		indicatorColorPending = true;
+		if (selectedItem >= itemCount) {
+			selectedItem = Math.max(0, itemCount - 1);
+			long now = AnimationUtils.currentAnimationTimeMillis();
+			offset.setTargetPosition(selectedItem * itemWidth, now);
+			startAnimation(now);
+		}
+		layoutDirty = true;
+		lastChildCount = -1;
+		requestLayout();
+		invalidate();
+	}
+
+	private void startAnimation(long now) {
+		FrameScheduler scheduler = FrameScheduler.getInstance();
+		if (!scheduler.isRegistered(animator)) {
+			animationStart = now;
+		}
+		scheduler.register(animator);
+	}
+
+	private Drawable createBackgroundDrawable(int color) {
+		StateListDrawable backgroundDrawable = new StateListDrawable();
+		backgroundDrawable.addState(PRESSED_ENABLED_STATE_SET,
+				new ColorDrawable(color));
+		return backgroundDrawable;
+	}
+
+	private int getLayoutColor(View view) {
+		ViewGroup.LayoutParams layoutParams = view.getLayoutParams();
+		if (layoutParams instanceof Chooser.LayoutParams) {
+			Chooser.LayoutParams params = (Chooser.LayoutParams) layoutParams;
+			return params.color;
+		}
+		return Color.WHITE;
+	}
+
+	private void drawIndicator(Canvas canvas) {
+		float left = offset.getPosition();
+		if (adapter != null) {
+			left += getPaddingLeft() - scrollX;
+		}
+		indicationRect.offsetTo(left, indicationRect.top);
+		paint.setColor(indicatorColor.getColor());
+		canvas.drawRect(indicationRect, paint);
+	}
+
+	private void drawDividers(Canvas canvas) {
+		int height = getHeight() - getPaddingTop() - getPaddingBottom();
+		int childCount = getChildCount();
+
+		int top = (int) (height * 0.2f) + getPaddingTop();
+		int bottom = (int) (height * 0.8f) + getPaddingTop();
+
+		paint.setColor(0x40333333);
+		paint.setAntiAlias(false);
+		for (int i = 1; i < childCount; i++) {
+			View prev = getChildAt(i - 1);
+			View next = getChildAt(i);
+			float x = (prev.getRight() + next.getLeft()) / 2;
+			canvas.drawLine(x, top, x, bottom, paint);
+
+		}
+		paint.setAntiAlias(true);
+	}
+
+	static class LayoutParams extends FrameLayout.LayoutParams {
+		int color;
+
+		public LayoutParams(Context context, AttributeSet attrs) {
+			super(context, attrs);
+			TypedArray a = context.obtainStyledAttributes(attrs,
+					R.styleable.Choser_Layout);
+			color = a.getColor(R.styleable.Choser_Layout_layout_color,
+					Color.WHITE);
+			a.recycle();
+		}
+	}
+}
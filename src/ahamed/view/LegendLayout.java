@@ -0,0 +1,321 @@
+/**
+ * Copyright 2014 Riyaz Ahamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package ahamed.view;
+
+import android.graphics.Paint;
+import android.graphics.Paint.Align;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+/**
+ * <p>
+ * Grid layout of the {@link PieChart} legend. Entries wrap into rows of cells
+ * no narrower than a minimum width, and when there are more rows than fit in
+ * the legend rectangle the rows scroll vertically.<br>
+ * Positions are derived from the entry index, and labels are measured and
+ * ellipsized only once the row holding them is scrolled into view, so laying
+ * out and drawing the legend costs the same however many entries there are.
+ * Measuring is left to the owner of the layout through
+ * {@link #measureRows(float)}, drawing only reads the measured labels.<br>
+ * A layout owns its own paints and may be computed on a background thread.
+ * </p>
+ */
+class LegendLayout {
+
+	private static final String ELLIPSIS = "\u2026";
+
+	private final Paint namePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+	private final Paint valuePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+	int count;
+	int columns;
+	int rows;
+	float cellWidth;
+	float rowHeight;
+
+	/** Offsets of the entry parts from the top of their row */
+	float nameBaseline;
+	float swatchTop;
+	float swatchBottom;
+	float valueBaseline;
+
+	float left;
+	float top;
+	float bottom;
+
+	/** Width a label may take before it is ellipsized */
+	private float available;
+
+	/** Labels of the current data, not copied */
+	private String[] legendNames;
+	private String[] valueLabels;
+
+	/** Ellipsized labels, valid where the entry generation is current */
+	private String[] names = new String[0];
+	private String[] values = new String[0];
+	private int[] entryGeneration = new int[0];
+	private int generation = 0;
+
+	/** Source labels and their measured widths, reused while unchanged */
+	private String[] sourceNames = new String[0];
+	private String[] sourceValues = new String[0];
+	private float[] nameWidths = new float[0];
+	private float[] valueWidths = new float[0];
+	private float measuredNameSize = -1f;
+	private float measuredValueSize = -1f;
+
+	LegendLayout() {
+		namePaint.setTextAlign(Align.CENTER);
+		valuePaint.setTextAlign(Align.CENTER);
+	}
+
+	/**
+	 * @return number of columns the entries are wrapped into
+	 */
+	static int columnsFor(int count, float width, float minCellWidth) {
+		int columns = minCellWidth > 0 ? (int) (width / minCellWidth) : count;
+		return Math.max(1, Math.min(count, columns));
+	}
+
+	/**
+	 * @return number of rows the legend shows at once
+	 */
+	static int visibleRowsFor(int count, float width, float minCellWidth,
+			int maxRows) {
+		int columns = columnsFor(count, width, minCellWidth);
+		int rows = (count + columns - 1) / columns;
+		return Math.max(1, Math.min(rows, maxRows));
+	}
+
+	/**
+	 * Lays out the entries in rows of the given height inside the legend
+	 * rectangle. Each cell has the name at the bottom, the color swatch above
+	 * it and the value on top. The label arrays are kept by reference and read
+	 * when an entry is first measured.
+	 */
+	void layout(String[] legendNames, String[] valueLabels, int count,
+			RectF legendRect, float rowHeight, float minCellWidth,
+			float nameTextSize, float valueTextSize) {
+		ensureCapacity(count);
+		this.legendNames = legendNames;
+		this.valueLabels = valueLabels;
+		this.count = count;
+		this.rowHeight = rowHeight;
+		generation++;
+		left = legendRect.left;
+		top = legendRect.top;
+		bottom = legendRect.bottom;
+
+		if (nameTextSize != measuredNameSize) {
+			namePaint.setTextSize(nameTextSize);
+			measuredNameSize = nameTextSize;
+			clear(sourceNames);
+		}
+		if (valueTextSize != measuredValueSize) {
+			valuePaint.setTextSize(valueTextSize);
+			measuredValueSize = valueTextSize;
+			clear(sourceValues);
+		}
+
+		Rect textBounds = new Rect();
+		namePaint.getTextBounds("gjyALl", 0, 5, textBounds);
+		float legendPadding = rowHeight / 10;
+
+		nameBaseline = rowHeight;
+		swatchBottom = nameBaseline - textBounds.height() - legendPadding;
+		swatchTop = swatchBottom - legendPadding / 2;
+		valueBaseline = swatchBottom - legendPadding * 1.5F;
+
+		columns = columnsFor(count, legendRect.width(), minCellWidth);
+		rows = (count + columns - 1) / columns;
+		cellWidth = count == 0 ? 0 : legendRect.width() / columns;
+		available = cellWidth - legendPadding;
+	}
+
+	/**
+	 * Measures every entry up front, used when the layout is computed off the
+	 * UI thread.
+	 */
+	void measureAll() {
+		for (int i = 0; i < count; i++) {
+			ensureEntry(i);
+		}
+	}
+
+	/**
+	 * Measures the entries of the rows visible at the given scroll offset that
+	 * have not been measured since the last layout.
+	 */
+	void measureRows(float scroll) {
+		int end = Math.min(count, (lastVisibleRow(scroll) + 1) * columns);
+		for (int i = firstVisibleRow(scroll) * columns; i < end; i++) {
+			ensureEntry(i);
+		}
+	}
+
+	/**
+	 * Re-measures a single entry after its value label changed.
+	 */
+	void updateValue(int i, String valueLabel) {
+		if (i >= count) {
+			return;
+		}
+		valueLabels[i] = valueLabel;
+		entryGeneration[i] = generation - 1;
+		ensureEntry(i);
+	}
+
+	private void ensureEntry(int i) {
+		if (entryGeneration[i] == generation) {
+			return;
+		}
+		String name = legendNames[i];
+		String value = valueLabels[i];
+		if (!name.equals(sourceNames[i])) {
+			sourceNames[i] = name;
+			nameWidths[i] = namePaint.measureText(name);
+		}
+		if (!value.equals(sourceValues[i])) {
+			sourceValues[i] = value;
+			valueWidths[i] = valuePaint.measureText(value);
+		}
+		names[i] = ellipsize(name, nameWidths[i], available, namePaint);
+		values[i] = ellipsize(value, valueWidths[i], available, valuePaint);
+		entryGeneration[i] = generation;
+	}
+
+	/**
+	 * @return the ellipsized name, measured by {@link #measureRows(float)}
+	 */
+	String getName(int i) {
+		return names[i];
+	}
+
+	/**
+	 * @return the ellipsized value, measured by {@link #measureRows(float)}
+	 */
+	String getValue(int i) {
+		return values[i];
+	}
+
+	/**
+	 * @return largest scroll offset, 0 if every row fits
+	 */
+	float getMaxScroll() {
+		return Math.max(0, rows * rowHeight - (bottom - top));
+	}
+
+	int firstVisibleRow(float scroll) {
+		return Math.max(0, (int) (scroll / rowHeight));
+	}
+
+	int lastVisibleRow(float scroll) {
+		int last = (int) Math.ceil((scroll + bottom - top) / rowHeight) - 1;
+		return Math.min(rows - 1, last);
+	}
+
+	float cellLeft(int i) {
+		return left + cellWidth * (i % columns);
+	}
+
+	float centerX(int i) {
+		return cellLeft(i) + cellWidth / 2;
+	}
+
+	/**
+	 * @return top of the row holding the entry, at the given scroll offset
+	 */
+	float rowTop(int i, float scroll) {
+		return top + rowHeight * (i / columns) - scroll;
+	}
+
+	/**
+	 * Sets the bounds of the entry's cell at the given scroll offset, clipped
+	 * to the legend.
+	 *
+	 * @return false if no part of the cell is visible
+	 */
+	boolean getCellBounds(int i, float scroll, RectF bounds) {
+		float cellTop = rowTop(i, scroll);
+		float cellLeft = cellLeft(i);
+		bounds.set(cellLeft, Math.max(cellTop, top), cellLeft + cellWidth,
+				Math.min(cellTop + rowHeight, bottom));
+		return bounds.top < bounds.bottom;
+	}
+
+	/**
+	 * @return the entry under the given point at the given scroll offset, or
+	 *         -1
+	 */
+	int indexAt(float x, float y, float scroll) {
+		if (count == 0 || cellWidth <= 0 || y < top || y >= bottom) {
+			return -1;
+		}
+		int column = (int) ((x - left) / cellWidth);
+		int row = (int) ((y - top + scroll) / rowHeight);
+		if (x < left || column >= columns || row >= rows) {
+			return -1;
+		}
+		int i = row * columns + column;
+		return i < count ? i : -1;
+	}
+
+	private static String ellipsize(String text, float width,
+			float available, Paint paint) {
+		if (width <= available) {
+			return text;
+		}
+		float ellipsisWidth = paint.measureText(ELLIPSIS);
+		int fit = paint.breakText(text, true, Math.max(available
+				- ellipsisWidth, 0), null);
+		return text.substring(0, fit) + ELLIPSIS;
+	}
+
+	private void ensureCapacity(int count) {
+		if (names.length >= count) {
+			return;
+		}
+		names = new String[count];
+		values = new String[count];
+		entryGeneration = new int[count];
+		// never equal to a generation the layout is about to use
+		for (int i = 0; i < count; i++) {
+			entryGeneration[i] = generation;
+		}
+		sourceNames = grow(sourceNames, count);
+		sourceValues = grow(sourceValues, count);
+		nameWidths = grow(nameWidths, count);
+		valueWidths = grow(valueWidths, count);
+	}
+
+	private static String[] grow(String[] array, int count) {
+		String[] grown = new String[count];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+
+	private static float[] grow(float[] array, int count) {
+		float[] grown = new float[count];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+
+	private static void clear(String[] array) {
+		for (int i = 0; i < array.length; i++) {
+			array[i] = null;
+		}
+	}
+}
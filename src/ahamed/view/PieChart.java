@@ -15,21 +15,38 @@
  */
 package ahamed.view;
 
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import ahamed.view.utils.ColorDynamics;
 import ahamed.view.utils.Dynamics;
+import ahamed.view.utils.DynamicsBank;
+import ahamed.view.utils.FrameScheduler;
+import ahamed.view.utils.FrameScheduler.FrameCallback;
+import ahamed.view.utils.FrameStats;
+import ahamed.view.utils.Palette;
+import ahamed.view.utils.PieGeometry;
+import ahamed.view.utils.SliceAggregator;
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.Paint;
-import android.graphics.Paint.Align;
 import android.graphics.Rect;
 import android.graphics.RectF;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.AttributeSet;
-import android.util.DisplayMetrics;
 import android.util.Log;
-import android.util.TypedValue;
 import android.view.MotionEvent;
+import android.view.VelocityTracker;
 import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.ViewParent;
 import android.view.animation.AnimationUtils;
 
 /**
@@ -48,61 +65,239 @@ public class PieChart extends View {
 		public abstract void onSelected(int iSelectedIndex);
 	}
 
-	private Runnable animator = new Runnable() {
+	/** Every frame draws the chart from scratch */
+	public static final int RENDER_MODE_DIRECT = 0;
+
+	/**
+	 * Once the chart settles it is drawn into a bitmap, which is blitted until
+	 * the data, size or selection changes
+	 */
+	public static final int RENDER_MODE_BITMAP_CACHE = 1;
+
+	/**
+	 * Once the chart settles the view gets a hardware layer, which is dropped
+	 * again while the chart animates
+	 */
+	public static final int RENDER_MODE_HARDWARE_LAYER = 2;
+
+	private FrameCallback animator = new FrameCallback() {
 		@Override
-		public void run() {
-			boolean needNewFrame = false;
-			long now = AnimationUtils.currentAnimationTimeMillis();
-			for (Dynamics dynamics : dataPoints) {
-				dynamics.update(now);
-				if (!dynamics.isAtRest()) {
-					needNewFrame = true;
+		public boolean doFrame(long now) {
+			final FrameStats stats = mFrameStats;
+			long lStart = stats != null ? System.nanoTime() : 0;
+			boolean bWasAtRest = dataPoints.isAtRest();
+			dataPoints.update(now);
+			boolean settled = dataPoints.isAtRest()
+					|| dataPoints.snapToTargetIfSettled(fnGetSettleTolerance());
+			renderer.geometry.update(dataPoints, totalValue);
+			renderer.invalidateGeometry();
+			boolean bColorsChanged = bColorsAnimating;
+			if (bColorsAnimating) {
+				bColorsAnimating = !fnStepColors(now);
+				settled &= !bColorsAnimating;
+			}
+			if (settled) {
+				fnOnSettled();
+			}
+			if (bColorsChanged) {
+				// the legend follows the slice colors
+				invalidate();
+			} else {
+				fnInvalidatePie();
+			}
+			if (stats != null) {
+				stats.recordStep(System.nanoTime() - lStart, !bWasAtRest);
+				if (settled) {
+					stats.recordSettle(now - lAnimationStart);
 				}
 			}
-			if (needNewFrame) {
-				postDelayed(this, 20);
+			return !settled;
+		}
+	};
+
+	/**
+	 * Steps the rotation spring only, the slice angles stay untouched while
+	 * the pie spins.
+	 */
+	private FrameCallback rotator = new FrameCallback() {
+		@Override
+		public boolean doFrame(long now) {
+			final FrameStats stats = mFrameStats;
+			long lStart = stats != null ? System.nanoTime() : 0;
+			boolean bWasAtRest = rotation.isAtRest();
+			rotation.update(now);
+			boolean settled = rotation.isAtRest()
+					|| rotation.snapToTargetIfSettled(ROTATION_SETTLE_TOLERANCE);
+			if (settled && !bRotating) {
+				// a full turn looks the same, keep the angle small
+				float fRest = rotation.getPosition() % DEGREE_360;
+				rotation.setPosition(fRest, now);
+				rotation.setTargetPosition(fRest, now);
+				bSpinning = false;
+				fnInvalidateCache();
+				fnUpdateLayerType();
+			}
+			renderer.fRotation = rotation.getPosition() % DEGREE_360;
+			fnInvalidatePie();
+			if (stats != null) {
+				stats.recordStep(System.nanoTime() - lStart, !bWasAtRest);
+				if (settled && !bRotating && !bWasAtRest) {
+					stats.recordSettle(now - lSpinStart);
+				}
+			}
+			return !settled;
+		}
+	};
+
+	/** Every {@link #setData} call is applied right away */
+	public static final int UPDATE_POLICY_IMMEDIATE = 0;
+
+	/** Only the last {@link #setData} call of a frame is applied */
+	public static final int UPDATE_POLICY_LATEST_PER_FRAME = 1;
+
+	/**
+	 * {@link #setData} calls are applied at most once per minimum interval,
+	 * the last call of an interval wins
+	 */
+	public static final int UPDATE_POLICY_MIN_INTERVAL = 2;
+
+	/** Data waiting for the next frame */
+	private static class Snapshot {
+		final double[] values;
+		final String[] legendNames;
+		final boolean integralValues;
+
+		Snapshot(double[] values, String[] legendNames, boolean integralValues) {
+			this.values = values;
+			this.legendNames = legendNames;
+			this.integralValues = integralValues;
+		}
+	}
+
+	private final AtomicReference<Snapshot> pendingSnapshot = new AtomicReference<Snapshot>();
+
+	private FrameCallback ingestor = new FrameCallback() {
+		@Override
+		public boolean doFrame(long now) {
+			if (iUpdatePolicy == UPDATE_POLICY_MIN_INTERVAL
+					&& now - lLastUpdateTime < lMinUpdateInterval) {
+				// sleep through the rest of the interval instead of waking
+				// up on every frame
+				if (pendingSnapshot.get() != null) {
+					sMainHandler.postDelayed(scheduleIngestor,
+							lMinUpdateInterval - (now - lLastUpdateTime));
+				}
+				return false;
+			}
+			Snapshot snapshot = pendingSnapshot.getAndSet(null);
+			if (snapshot != null) {
+				String[] legendNames = snapshot.legendNames;
+				if (legendNames == null) {
+					legendNames = fnReuseLegendNames(snapshot.values.length);
+				}
+				fnApplyData(snapshot.values, legendNames,
+						snapshot.integralValues, now);
+			}
+			return false;
+		}
+	};
+
+	private int iUpdatePolicy = UPDATE_POLICY_IMMEDIATE;
+	private long lMinUpdateInterval = 0;
+	private float fUpdateDeltaThreshold = 0f;
+	private long lLastUpdateTime = Long.MIN_VALUE / 2;
+	private final AtomicLong lMergedUpdates = new AtomicLong();
+	private final AtomicLong lDroppedUpdates = new AtomicLong();
+
+	private Runnable scheduleIngestor = new Runnable() {
+		@Override
+		public void run() {
+			// a detached view picks the data up in onAttachedToWindow
+			if (bAttached) {
+				FrameScheduler.getInstance().register(ingestor);
 			}
-			invalidate();
 		}
 	};
 
+	/**
+	 * Posts from worker threads. View.post queues on the thread's own run
+	 * queue while the view is detached, which is never drained for a worker
+	 * thread before API 24.
+	 */
+	private static final Handler sMainHandler = new Handler(
+			Looper.getMainLooper());
+	private boolean bAttached = false;
+
 	private OnSelectedLisenter onSelectedListener = null;
 
+	private FrameStats mFrameStats = null;
+	private long lAnimationStart = 0;
+
 	private static final String TAG = PieChart.class.getName();
-	private static final int DEGREE_360 = 360;
-	private static String[] PIE_COLORS = { "#0099CC", "#FF8800", "#669900",
-			"#9933CC", "#CC0000", "#BF1A0B", "#590202", "#BBBF34", "#038C17",
-			"#2E707B", "#5CC9CB", "#CAF1E7" };
-	private static int iColorListSize = 0;
-
-	private Paint paintPieFill;
-	private Paint paintPieBorder;
-	private Paint paintPieText;
-	private Paint paintLegendText;
+	private static final int DEGREE_360 = PieGeometry.DEGREE_360;
+
+	private final PieChartRenderer renderer;
 	
 	private int bgColor;
 
 	private int iDisplayWidth, iDisplayHeight;
 	private int iSelectedIndex = -1;
-	private int iCenterWidth = 0;
-	private int iShift = 0;
-	private int iMargin = 0;
 	private int iDataSize = 0;
 
-	private RectF r = null;
-	private RectF innerRectF = null;
-	private RectF legendRectF = null;
+	private double totalValue;
+
+	private boolean bFixedTimestep = false;
+
+	private int iRenderMode = RENDER_MODE_DIRECT;
+	private boolean bSettled = false;
+	private boolean bCacheValid = false;
+	private Bitmap mCacheBitmap;
+	private Canvas mCacheCanvas;
+
+	private final SliceAggregator aggregator = new SliceAggregator();
+
+	private static ExecutorService sLegendExecutor;
+	private LegendLayout legendLayoutBack = new LegendLayout();
+	private boolean bLegendLayoutAsync = false;
+	private int iLegendGeneration = 0;
+	private float fLegendTouchY = 0f;
+	private boolean bLegendTouch = false;
+	private boolean bLegendDragging = false;
+	private int iTouchSlop = 0;
 
-	private Rect textBounds;
+	/**
+	 * How far ahead of a fling, in seconds of its release velocity, the pie
+	 * looks for the slice to snap to
+	 */
+	private static final float ROTATION_FLING_PROJECTION = 0.25f;
 
-	private float mPrimaryTextSize;
-	private float mSecondaryTextSize;
+	/** Rotation left below which the pie snaps to its target, in degrees */
+	private static final float ROTATION_SETTLE_TOLERANCE = 0.05f;
 
-	private float fDensity = 0.0f;
-	private float fStartAngle = 0.0f;
-	private float fEndAngle = 0.0f;
+	/** A color channel less than one step away can not change any more */
+	private static final float COLOR_SETTLE_TOLERANCE = 0.5f;
 
-	private int totalValue;
+	private final Dynamics rotation = new Dynamics(40f, 0.9f);
+	private boolean bRotatable = false;
+	private float fSnapAngle = 270f;
+	private boolean bRotateTouch = false;
+	private boolean bRotating = false;
+	private boolean bSpinning = false;
+	private float fRotateTouchX, fRotateTouchY, fRotateTouchAngle;
+	private long lSpinStart = 0;
+	private VelocityTracker mVelocityTracker;
+	private int iMinFlingVelocity = 0;
+	private int iMaxFlingVelocity = 0;
+
+	private final RectF mDirtyRectF = new RectF();
+	private final Rect mDirtyRect = new Rect();
+
+	// colors and labels of the slices, drawn by the renderer
+	private int[] iSliceColors;
+	private Palette mPalette = Palette.DEFAULT;
+	private ColorDynamics[] mColorDynamics = new ColorDynamics[0];
+	private boolean bColorsAnimating = false;
+	private String[] mValueLabels;
 
 	public PieChart(Context context, AttributeSet attrs) {
 		super(context, attrs);
@@ -115,118 +310,527 @@ public class PieChart extends View {
 		
 		this.setBackgroundColor(bgColor);
 
-		iColorListSize = PIE_COLORS.length;
+		renderer = new PieChartRenderer(context);
+		ViewConfiguration configuration = ViewConfiguration.get(context);
+		iTouchSlop = configuration.getScaledTouchSlop();
+		iMinFlingVelocity = configuration.getScaledMinimumFlingVelocity();
+		iMaxFlingVelocity = configuration.getScaledMaximumFlingVelocity();
 
-		mPrimaryTextSize = TypedValue.applyDimension(
-				TypedValue.COMPLEX_UNIT_SP, 18, getResources()
-						.getDisplayMetrics());
+		Log.i(TAG, "PieChart init");
+	}
 
-		mSecondaryTextSize = TypedValue.applyDimension(
-				TypedValue.COMPLEX_UNIT_SP, 14, getResources()
-						.getDisplayMetrics());
+	// set listener
+	public void setOnSelectedListener(OnSelectedLisenter listener) {
+		this.onSelectedListener = listener;
+	}
 
-		fnGetDisplayMetrics(context);
-		iShift = (int) fnGetRealPxFromDp(10);
-		iMargin = (int) fnGetRealPxFromDp(40);
+	/**
+	 * Collects draw, animation step, data and settle timings into the given
+	 * stats, or stops collecting them when null.
+	 */
+	public void setFrameStats(FrameStats stats) {
+		mFrameStats = stats;
+	}
 
-		textBounds = new Rect();
+	public FrameStats getFrameStats() {
+		return mFrameStats;
+	}
 
-		// used for paint circle
-		paintPieFill = new Paint(Paint.ANTI_ALIAS_FLAG);
-		paintPieFill.setStyle(Paint.Style.FILL);
+	/**
+	 * Animates the slices with fixed timestep integration, which makes the
+	 * animation independent of the display's frame rate.
+	 * 
+	 * @see DynamicsBank#setFixedTimestep(boolean)
+	 */
+	public void setFixedTimestep(boolean fixedTimestep) {
+		bFixedTimestep = fixedTimestep;
+		if (dataPoints != null) {
+			dataPoints.setFixedTimestep(fixedTimestep);
+		}
+		rotation.setFixedTimestep(fixedTimestep);
+		for (int i = 0; i < mColorDynamics.length; i++) {
+			mColorDynamics[i].setFixedTimestep(fixedTimestep);
+		}
+	}
 
-		// used for paint border
-		paintPieBorder = new Paint(Paint.ANTI_ALIAS_FLAG);
-		paintPieBorder.setStyle(Paint.Style.STROKE);
-		paintPieBorder.setStrokeWidth(fnGetRealPxFromDp(3));
-		paintPieBorder.setColor(Color.WHITE);
+	/**
+	 * Switches the slice colors to the given palette, fading the slices into
+	 * their new colors.
+	 */
+	public void setPalette(Palette palette) {
+		setPalette(palette, true);
+	}
 
-		paintPieText = new Paint(Paint.ANTI_ALIAS_FLAG);
-		paintPieText.setTextAlign(Align.CENTER);
+	/**
+	 * Switches the slice colors to the given palette.
+	 * 
+	 * @param animate
+	 *            false to apply the colors on the next draw
+	 */
+	public void setPalette(Palette palette, boolean animate) {
+		mPalette = palette;
+		if (iSliceColors == null) {
+			return;
+		}
+		int[] targetColors = palette.getColors(iDataSize);
+		if (!animate) {
+			bColorsAnimating = false;
+			System.arraycopy(targetColors, 0, iSliceColors, 0, iDataSize);
+			renderer.invalidateGeometry();
+			fnInvalidateCache();
+			invalidate();
+			return;
+		}
+		long now = AnimationUtils.currentAnimationTimeMillis();
+		if (mColorDynamics.length < iDataSize) {
+			ColorDynamics[] colorDynamics = new ColorDynamics[iDataSize];
+			System.arraycopy(mColorDynamics, 0, colorDynamics, 0,
+					mColorDynamics.length);
+			for (int i = mColorDynamics.length; i < iDataSize; i++) {
+				colorDynamics[i] = new ColorDynamics();
+				colorDynamics[i].setFixedTimestep(bFixedTimestep);
+			}
+			mColorDynamics = colorDynamics;
+		}
+		for (int i = 0; i < iDataSize; i++) {
+			if (!bColorsAnimating) {
+				mColorDynamics[i].setColor(iSliceColors[i], now);
+			}
+			mColorDynamics[i].setTargetColor(targetColors[i], now);
+		}
+		bColorsAnimating = true;
+		fnStartAnimation();
+	}
 
-		paintLegendText = new Paint(Paint.ANTI_ALIAS_FLAG);
-		paintLegendText.setTextAlign(Align.CENTER);
+	public Palette getPalette() {
+		return mPalette;
+	}
 
-		paintPieText.setColor(Color.DKGRAY);
+	/**
+	 * Lets the user spin the pie by dragging it. A fling keeps it turning
+	 * until the slice heading for the snap angle settles on it and is
+	 * selected, a tap selects the touched slice and turns it onto the snap
+	 * angle. The pie is rotated as a whole, the slices are not recomputed
+	 * while it spins.
+	 * 
+	 * @see #setSnapAngle(float)
+	 */
+	public void setRotatable(boolean rotatable) {
+		bRotatable = rotatable;
+	}
 
-		Log.i(TAG, "PieChart init");
+	public boolean isRotatable() {
+		return bRotatable;
 	}
 
-	// set listener
-	public void setOnSelectedListener(OnSelectedLisenter listener) {
-		this.onSelectedListener = listener;
+	/**
+	 * @param angle
+	 *            where the selected slice comes to rest when the pie is
+	 *            spun, in degrees clockwise from the positive x axis. 270, the
+	 *            top of the pie, by default.
+	 */
+	public void setSnapAngle(float angle) {
+		fSnapAngle = angle;
+	}
+
+	public float getSnapAngle() {
+		return fSnapAngle;
+	}
+
+	/**
+	 * @return the current rotation of the pie, in degrees clockwise
+	 */
+	public float getPieRotation() {
+		return renderer.fRotation;
+	}
+
+	/**
+	 * Predicts from the spring constants and their current state how long the
+	 * running animations take to come to rest. Slices are done once their
+	 * edges stay within a pixel, the same point at which the animation snaps
+	 * them onto their targets and stops requesting frames.
+	 * 
+	 * @return remaining animation time in ms, 0 if the pie is at rest
+	 */
+	public long getSettleTime() {
+		long lSettleTime = 0;
+		if (dataPoints != null && !bSettled) {
+			lSettleTime = dataPoints.getSettleTime(fnGetSettleTolerance());
+		}
+		if (bColorsAnimating) {
+			for (int i = 0; i < iDataSize; i++) {
+				lSettleTime = Math.max(lSettleTime, mColorDynamics[i]
+						.getSettleTime(COLOR_SETTLE_TOLERANCE));
+			}
+		}
+		if (bSpinning) {
+			lSettleTime = Math.max(lSettleTime,
+					rotation.getSettleTime(ROTATION_SETTLE_TOLERANCE));
+		}
+		return lSettleTime;
+	}
+
+	/**
+	 * Selects how the chart is drawn while it is at rest.
+	 * 
+	 * @param renderMode
+	 *            one of {@link #RENDER_MODE_DIRECT},
+	 *            {@link #RENDER_MODE_BITMAP_CACHE} or
+	 *            {@link #RENDER_MODE_HARDWARE_LAYER}
+	 */
+	public void setRenderMode(int renderMode) {
+		if (iRenderMode == renderMode) {
+			return;
+		}
+		iRenderMode = renderMode;
+		if (renderMode != RENDER_MODE_BITMAP_CACHE) {
+			fnReleaseCache();
+		}
+		fnUpdateLayerType();
+		invalidate();
+	}
+
+	public int getRenderMode() {
+		return iRenderMode;
 	}
 
 	@Override
 	protected void onDraw(Canvas canvas) {
+		final FrameStats stats = mFrameStats;
+		long lStart = stats != null ? System.nanoTime() : 0;
 		super.onDraw(canvas);
-		fStartAngle = 0.0f;
-		for (int i = 0; i < iDataSize; i++) {
-
-			// check whether the data size larger than color list size
-			if (i >= iColorListSize) {
-				paintPieFill.setColor(Color.parseColor(PIE_COLORS[i
-						% iColorListSize]));
-			} else {
-				paintPieFill.setColor(Color.parseColor(PIE_COLORS[i]));
+		if (iRenderMode == RENDER_MODE_BITMAP_CACHE && bSettled && !bSpinning
+				&& getWidth() > 0 && getHeight() > 0) {
+			if (!bCacheValid) {
+				fnRenderCache();
 			}
+			canvas.drawBitmap(mCacheBitmap, 0, 0, null);
+		} else {
+			renderer.drawChart(canvas, iSelectedIndex);
+		}
+		if (stats != null) {
+			stats.recordDraw(System.nanoTime() - lStart);
+		}
+	}
+
+	/**
+	 * Draws the slices as a single triangle mesh instead of one path per
+	 * slice, which is cheaper for large slice counts. The mesh is not
+	 * antialiased and is only used on software canvases, hardware accelerated
+	 * drawing keeps using paths.
+	 */
+	public void setTessellated(boolean tessellated) {
+		renderer.setTessellated(tessellated);
+		fnInvalidateCache();
+		invalidate();
+	}
+
+	/**
+	 * Limits the height of the legend. Entries that do not fit into this many
+	 * rows are reached by dragging the legend vertically.
+	 */
+	public void setLegendMaxRows(int maxRows) {
+		renderer.setLegendMaxRows(maxRows);
+		requestLayout();
+	}
+
+	/**
+	 * Sets the narrowest legend cell, in pixels. Entries wrap into a new row
+	 * once their cells would get narrower.
+	 */
+	public void setLegendCellMinWidth(float minWidth) {
+		renderer.setLegendCellMinWidth(minWidth);
+		requestLayout();
+		fnRequestLegendLayout();
+		fnInvalidateLegend();
+	}
 
-			fEndAngle = dataPoints[i].getPosition() / totalValue * DEGREE_360;
+	/**
+	 * Measures and ellipsizes the legend labels on the layout thread instead
+	 * of the UI thread. Until the layout of new data is ready the legend is
+	 * left empty.
+	 */
+	public void setLegendLayoutAsync(boolean async) {
+		bLegendLayoutAsync = async;
+	}
+
+	/**
+	 * Recomputes the legend layout for the current data and legend size.
+	 */
+	private void fnRequestLegendLayout() {
+		final int iGeneration = ++iLegendGeneration;
+		if (!renderer.isLaidOut() || mLegendNames == null) {
+			return;
+		}
+		if (!bLegendLayoutAsync) {
+			renderer.layoutLegend();
+			fnScrollLegend(0);
+			return;
+		}
 
-			if (iSelectedIndex == i) {
-				canvas.save(Canvas.MATRIX_SAVE_FLAG);
-				float fAngle = fStartAngle + fEndAngle / 2;
-				double dxRadius = Math.toRadians((fAngle + DEGREE_360)
-						% DEGREE_360);
-				float fY = (float) Math.sin(dxRadius);
-				float fX = (float) Math.cos(dxRadius);
-				canvas.translate(fX * iShift, fY * iShift);
+		final String[] legendNames = mLegendNames.clone();
+		final String[] valueLabels = mValueLabels.clone();
+		final int iCount = iDataSize;
+		final RectF rect = new RectF(renderer.legendRectF);
+		final float fRowHeight = renderer.fLegendRowHeight;
+		final float fMinWidth = renderer.fLegendCellMinWidth;
+		final float fNameSize = renderer.mSecondaryTextSize;
+		final float fValueSize = renderer.mPrimaryTextSize;
+		final LegendLayout layout = legendLayoutBack;
+		fnGetLegendExecutor().execute(new Runnable() {
+			@Override
+			public void run() {
+				layout.layout(legendNames, valueLabels, iCount, rect,
+						fRowHeight, fMinWidth, fNameSize, fValueSize);
+				layout.measureAll();
+				sMainHandler.post(new Runnable() {
+					@Override
+					public void run() {
+						if (iGeneration != iLegendGeneration) {
+							// superseded by a newer layout request
+							return;
+						}
+						legendLayoutBack = renderer.legendLayout;
+						renderer.legendLayout = layout;
+						fnScrollLegend(0);
+						fnInvalidateCache();
+						fnInvalidateLegend();
+					}
+				});
 			}
+		});
+	}
+
+	private static synchronized ExecutorService fnGetLegendExecutor() {
+		if (sLegendExecutor == null) {
+			sLegendExecutor = Executors
+					.newSingleThreadExecutor(new ThreadFactory() {
+						@Override
+						public Thread newThread(Runnable runnable) {
+							Thread thread = new Thread(runnable,
+									"PieChart legend layout");
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+		}
+		return sLegendExecutor;
+	}
+
+	private void fnRenderCache() {
+		if (mCacheBitmap == null || mCacheBitmap.getWidth() != getWidth()
+				|| mCacheBitmap.getHeight() != getHeight()) {
+			fnReleaseCache();
+			mCacheBitmap = Bitmap.createBitmap(getWidth(), getHeight(),
+					Bitmap.Config.ARGB_8888);
+			mCacheCanvas = new Canvas(mCacheBitmap);
+		} else {
+			mCacheBitmap.eraseColor(Color.TRANSPARENT);
+		}
+		renderer.drawChart(mCacheCanvas, iSelectedIndex);
+		bCacheValid = true;
+	}
 
-			canvas.drawArc(r, fStartAngle, fEndAngle, true, paintPieFill);
+	private void fnReleaseCache() {
+		if (mCacheBitmap != null) {
+			mCacheBitmap.recycle();
+			mCacheBitmap = null;
+			mCacheCanvas = null;
+		}
+		bCacheValid = false;
+	}
 
-			if (iSelectedIndex == i) {
-				canvas.drawArc(r, fStartAngle, fEndAngle, true, paintPieBorder);
-				canvas.restore();
+	private void fnInvalidateCache() {
+		bCacheValid = false;
+	}
+
+	private void fnOnSettled() {
+		bSettled = true;
+		fnInvalidateCache();
+		fnUpdateLayerType();
+	}
+
+	private void fnUpdateLayerType() {
+		int iLayerType = LAYER_TYPE_NONE;
+		if (iRenderMode == RENDER_MODE_HARDWARE_LAYER && bSettled
+				&& !bSpinning) {
+			iLayerType = LAYER_TYPE_HARDWARE;
+		}
+		if (getLayerType() != iLayerType) {
+			setLayerType(iLayerType, null);
+		}
+	}
+
+	/**
+	 * Repaints only the slices that are exploded or pulled back by a
+	 * selection change.
+	 */
+	private void fnOnSelectionChanged(int iPreviousIndex) {
+		if (iPreviousIndex == iSelectedIndex) {
+			return;
+		}
+		fnInvalidateCache();
+		fnInvalidateSlice(iPreviousIndex);
+		fnInvalidateSlice(iSelectedIndex);
+	}
+
+	/**
+	 * Invalidates the area covered by the slice both in its resting and its
+	 * exploded position.
+	 */
+	private void fnInvalidateSlice(int i) {
+		if (i < 0 || i >= iDataSize || !renderer.isLaidOut()) {
+			return;
+		}
+		RectF r = renderer.r;
+		int iShift = renderer.iShift;
+		float fStart = (renderer.geometry.getStartAngle(i)
+				+ renderer.fRotation + DEGREE_360) % DEGREE_360;
+		float fSweep = renderer.geometry.getSweepAngle(i);
+		float fRadius = r.width() / 2;
+		float fCenterX = r.centerX();
+		float fCenterY = r.centerY();
+
+		mDirtyRectF.set(fCenterX, fCenterY, fCenterX, fCenterY);
+		fnUnionArcPoint(fCenterX, fCenterY, fRadius, fStart);
+		fnUnionArcPoint(fCenterX, fCenterY, fRadius, fStart + fSweep);
+		// the wedge bulges out wherever it crosses an axis
+		for (int iAxis = 0; iAxis <= 2 * DEGREE_360; iAxis += 90) {
+			if (iAxis > fStart && iAxis < fStart + fSweep) {
+				fnUnionArcPoint(fCenterX, fCenterY, fRadius, iAxis);
 			}
-			fStartAngle = fStartAngle + fEndAngle;
-			drawLegend(canvas, i);
 		}
-		paintPieFill.setColor(bgColor);
-		paintPieText.setTextSize(innerRectF.width() / 7F);
-		String centerText = totalValue + " Projects";
-		paintPieText.getTextBounds(centerText, 0, centerText.length(),
-				textBounds);
-		canvas.drawArc(innerRectF, 0F, 360F, true, paintPieFill);
-		canvas.drawText(totalValue + " Projects", innerRectF.centerX(),
-				innerRectF.centerY() + textBounds.height() / 2, paintPieText);
+
+		double dxRadius = Math.toRadians(fStart + fSweep / 2);
+		float fX = (float) Math.cos(dxRadius) * iShift;
+		float fY = (float) Math.sin(dxRadius) * iShift;
+		mDirtyRectF.union(mDirtyRectF.left + fX, mDirtyRectF.top + fY);
+		mDirtyRectF.union(mDirtyRectF.right + fX, mDirtyRectF.bottom + fY);
+
+		float fStroke = renderer.paintPieBorder.getStrokeWidth() + 1;
+		mDirtyRectF.inset(-fStroke, -fStroke);
+		mDirtyRectF.roundOut(mDirtyRect);
+		invalidate(mDirtyRect);
+	}
+
+	private void fnUnionArcPoint(float fCenterX, float fCenterY,
+			float fRadius, float fAngle) {
+		double dxRadius = Math.toRadians(fAngle);
+		mDirtyRectF.union(fCenterX + (float) Math.cos(dxRadius) * fRadius,
+				fCenterY + (float) Math.sin(dxRadius) * fRadius);
+	}
+
+	/**
+	 * Invalidates the circle of the chart including room for an exploded
+	 * slice, leaving the legend alone.
+	 */
+	private void fnInvalidatePie() {
+		if (!renderer.isLaidOut()) {
+			invalidate();
+			return;
+		}
+		float fInset = renderer.iShift
+				+ renderer.paintPieBorder.getStrokeWidth() + 1;
+		mDirtyRectF.set(renderer.r);
+		mDirtyRectF.inset(-fInset, -fInset);
+		mDirtyRectF.roundOut(mDirtyRect);
+		invalidate(mDirtyRect);
 	}
 
-	private void drawLegend(Canvas canvas, int i) {
+	private void fnInvalidateLegendCell(int i) {
+		LegendLayout layout = renderer.legendLayout;
+		if (i >= layout.count) {
+			fnInvalidateLegend();
+			return;
+		}
+		if (!layout.getCellBounds(i, renderer.fLegendScroll, mDirtyRectF)) {
+			// scrolled out of the legend
+			return;
+		}
+		mDirtyRectF.roundOut(mDirtyRect);
+		invalidate(mDirtyRect);
+	}
 
-		float legendWidth = legendRectF.width() / mLegendNames.length;
-		float legendEndPoint = legendWidth * (i + 1) + legendRectF.left;
-		float legendStartPoint = legendEndPoint - legendWidth;
+	/**
+	 * Scrolls the legend rows by the given distance, clamped to the rows
+	 * there are.
+	 */
+	private void fnScrollLegend(float fDistance) {
+		float fScroll = Math.max(0, Math.min(renderer.fLegendScroll
+				+ fDistance, renderer.legendLayout.getMaxScroll()));
+		if (fScroll != renderer.fLegendScroll) {
+			renderer.fLegendScroll = fScroll;
+			// measure the rows scrolled into view here rather than in onDraw
+			renderer.legendLayout.measureRows(fScroll);
+			fnInvalidateCache();
+			fnInvalidateLegend();
+		}
+	}
 
-		float bottomOffset = legendRectF.bottom;
-		float legendPadding = legendRectF.height() / 10;
+	private void fnInvalidateLegend() {
+		if (!renderer.isLaidOut()) {
+			invalidate();
+			return;
+		}
+		renderer.legendRectF.roundOut(mDirtyRect);
+		invalidate(mDirtyRect);
+	}
 
-		paintLegendText.setColor(paintPieFill.getColor());
-		paintLegendText.setTextSize(mSecondaryTextSize);
-		canvas.drawText(mLegendNames[i], legendStartPoint + legendWidth / 2,
-				bottomOffset, paintLegendText);
+	/**
+	 * @return the value change that moves a slice edge by less than one pixel
+	 *         on the outer circle, spread over all slices
+	 */
+	private float fnGetSettleTolerance() {
+		if (!renderer.isLaidOut()) {
+			return 0f;
+		}
+		return PieGeometry.settleTolerance(totalValue, iDataSize,
+				renderer.r.width());
+	}
 
-		paintLegendText.getTextBounds("gjyALl", 0, 5, textBounds);
-		bottomOffset = bottomOffset - textBounds.height() - legendPadding;
+	@Override
+	protected void onAttachedToWindow() {
+		super.onAttachedToWindow();
+		bAttached = true;
+		// pick up data published while the view was detached
+		if (pendingSnapshot.get() != null) {
+			sMainHandler.post(scheduleIngestor);
+		}
+		// resume an animation cut short by the detach
+		if (dataPoints != null && !bSettled) {
+			FrameScheduler.getInstance().register(animator);
+		}
+	}
 
-		canvas.drawRect(legendStartPoint, bottomOffset - legendPadding / 2,
-				legendEndPoint, bottomOffset, paintPieFill);
-		bottomOffset = bottomOffset - legendPadding * 1.5F;
+	@Override
+	protected void onDetachedFromWindow() {
+		super.onDetachedFromWindow();
+		bAttached = false;
+		sMainHandler.removeCallbacks(scheduleIngestor);
+		FrameScheduler.getInstance().unregister(animator);
+		FrameScheduler.getInstance().unregister(ingestor);
+		FrameScheduler.getInstance().unregister(rotator);
+		if (bSpinning) {
+			long now = AnimationUtils.currentAnimationTimeMillis();
+			rotation.setPosition(rotation.getTargetPos() % DEGREE_360, now);
+			rotation.setTargetPosition(rotation.getPosition(), now);
+			rotation.setVelocity(0, now);
+			renderer.fRotation = rotation.getPosition();
+			bSpinning = false;
+		}
+		bRotateTouch = false;
+		bRotating = false;
+		if (mVelocityTracker != null) {
+			mVelocityTracker.recycle();
+			mVelocityTracker = null;
+		}
+		fnReleaseCache();
+	}
 
-		paintLegendText.setColor(paintPieFill.getColor());
-		paintLegendText.setTextSize(mPrimaryTextSize);
-		canvas.drawText(Integer.toString(mDataValues[i]), legendStartPoint
-				+ legendWidth / 2, bottomOffset, paintLegendText);
+	@Override
+	protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+		super.onSizeChanged(w, h, oldw, oldh);
+		fnInvalidateCache();
 	}
 
 	@Override
@@ -242,113 +846,627 @@ public class PieChart extends View {
 		}
 
 		// determine the rectangle size
-
-		iCenterWidth = iDisplayWidth / 2;
-		// TODO
-		int legendWidth = iCenterWidth / 2;
-		int iR = iCenterWidth - iMargin;
-		int oR = iR / 2;
-		float lR = iCenterWidth - iMargin / 2;
-		if (r == null) {
-			r = new RectF(iCenterWidth - iR, // top
-					iCenterWidth - iR, // left
-					iCenterWidth + iR, // rights
-					iCenterWidth + iR); // bottom
-		}
-		if (innerRectF == null) {
-			innerRectF = new RectF(iCenterWidth - oR, // top
-					iCenterWidth - oR, // left
-					iCenterWidth + oR, // rights
-					iCenterWidth + oR); // bottom
-		}
-		if (legendRectF == null) {
-			legendRectF = new RectF(iCenterWidth - lR, // top
-					iCenterWidth + iR, // left
-					iCenterWidth + lR, // rights
-					iCenterWidth + iR + legendWidth); // bottom
-		}
-		setMeasuredDimension(iDisplayWidth, iDisplayWidth + legendWidth);
+		if (renderer.layout(iDisplayWidth)) {
+			fnRequestLegendLayout();
+		}
+		setMeasuredDimension(iDisplayWidth, renderer.getHeight());
 	}
 
 	@Override
 	public boolean onTouchEvent(MotionEvent event) {
+		if (fnOnLegendTouch(event)) {
+			return true;
+		}
+		if (bRotatable && fnOnRotateTouch(event)) {
+			return true;
+		}
 
-		if (r.contains(event.getX(), event.getY())) {
-			// get degree of the touch point
-			double dx = Math.atan2(event.getY() - iCenterWidth, event.getX()
-					- iCenterWidth);
-			float fDegree = (float) (dx / (2 * Math.PI) * DEGREE_360);
-			fDegree = (fDegree + DEGREE_360) % DEGREE_360;
+		if (renderer.r.contains(event.getX(), event.getY())) {
+			fnSelectSliceAt(event.getX(), event.getY());
+		} else if (renderer.legendRectF.contains(event.getX(), event.getY())
+				&& event.getActionMasked() == MotionEvent.ACTION_DOWN) {
+			if (renderer.legendLayout.getMaxScroll() > 0) {
+				// a tap selects once it is known not to be a drag
+				bLegendTouch = true;
+				bLegendDragging = false;
+				fLegendTouchY = event.getY();
+				return true;
+			}
+			fnSelectLegendEntry(event.getX(), event.getY());
+		}
+		return super.onTouchEvent(event);
+	}
 
-			float tempTotalValue = 0f;
-			// check which pie was selected
-			for (int i = 0; i < iDataSize; i++) {
-				tempTotalValue += dataPoints[i].getPosition() / totalValue
-						* DEGREE_360;
-				if (tempTotalValue > fDegree) {
-					iSelectedIndex = i;
-					break;
+	private void fnSelectSliceAt(float fX, float fY) {
+		int iPreviousIndex = iSelectedIndex;
+		// get degree of the touch point on the unrotated pie
+		float fDegree = PieGeometry.angleOf(fX, fY, renderer.iCenterWidth,
+				renderer.iCenterWidth) - renderer.fRotation;
+
+		// check which pie was selected
+		int iTouchedIndex = sliceAt(fDegree);
+		if (iTouchedIndex >= 0) {
+			iSelectedIndex = iTouchedIndex;
+		}
+		if (onSelectedListener != null) {
+			onSelectedListener.onSelected(iSelectedIndex);
+		}
+		fnOnSelectionChanged(iPreviousIndex);
+	}
+
+	/**
+	 * Spins the pie while a drag that started on it goes on, and flings or
+	 * snaps it when the drag ends.
+	 * 
+	 * @return true if the event belongs to such a touch
+	 */
+	private boolean fnOnRotateTouch(MotionEvent event) {
+		float fX = event.getX();
+		float fY = event.getY();
+		float fCenter = renderer.iCenterWidth;
+		long now = AnimationUtils.currentAnimationTimeMillis();
+		switch (event.getActionMasked()) {
+		case MotionEvent.ACTION_DOWN:
+			if (!renderer.r.contains(fX, fY)) {
+				return false;
+			}
+			bRotateTouch = true;
+			bRotating = false;
+			fRotateTouchX = fX;
+			fRotateTouchY = fY;
+			if (mVelocityTracker == null) {
+				mVelocityTracker = VelocityTracker.obtain();
+			} else {
+				mVelocityTracker.clear();
+			}
+			mVelocityTracker.addMovement(event);
+			if (bSpinning) {
+				// touching the pie holds it
+				fnSpinBy(0f, now);
+			}
+			return true;
+		case MotionEvent.ACTION_MOVE:
+			if (!bRotateTouch) {
+				return false;
+			}
+			mVelocityTracker.addMovement(event);
+			if (!bRotating
+					&& Math.hypot(fX - fRotateTouchX, fY - fRotateTouchY) > iTouchSlop) {
+				bRotating = true;
+				fRotateTouchAngle = PieGeometry.angleOf(fX, fY, fCenter,
+						fCenter);
+				ViewParent parent = getParent();
+				if (parent != null) {
+					parent.requestDisallowInterceptTouchEvent(true);
 				}
 			}
+			if (bRotating) {
+				float fAngle = PieGeometry.angleOf(fX, fY, fCenter, fCenter);
+				fnSpinBy(fnNormalizeAngle(fAngle - fRotateTouchAngle), now);
+				fRotateTouchAngle = fAngle;
+			}
+			return true;
+		case MotionEvent.ACTION_UP:
+			if (!bRotateTouch) {
+				return false;
+			}
+			bRotateTouch = false;
+			if (bRotating) {
+				mVelocityTracker.addMovement(event);
+				mVelocityTracker.computeCurrentVelocity(1000, iMaxFlingVelocity);
+				bRotating = false;
+				fnFling(fnAngularVelocity(fX - fCenter, fY - fCenter), now);
+			} else {
+				fnSelectSliceAt(fX, fY);
+				fnSnapSelected(rotation.getPosition(), now);
+			}
+			return true;
+		case MotionEvent.ACTION_CANCEL:
+			if (!bRotateTouch) {
+				return false;
+			}
+			bRotateTouch = false;
+			if (bRotating) {
+				bRotating = false;
+				fnFling(0f, now);
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return the angular velocity of the tracked finger around the center,
+	 *         in degrees per second clockwise, given its offset from the
+	 *         center
+	 */
+	private float fnAngularVelocity(float fDx, float fDy) {
+		float fVx = mVelocityTracker.getXVelocity();
+		float fVy = mVelocityTracker.getYVelocity();
+		float fDistanceSquared = fDx * fDx + fDy * fDy;
+		if (Math.hypot(fVx, fVy) < iMinFlingVelocity || fDistanceSquared < 1f) {
+			return 0f;
+		}
+		return (float) Math.toDegrees((fDx * fVy - fDy * fVx)
+				/ fDistanceSquared);
+	}
+
+	/**
+	 * Turns the pie by the given angle, holding the spring at rest on it.
+	 */
+	private void fnSpinBy(float fDegrees, long now) {
+		float fPosition = rotation.getPosition() + fDegrees;
+		rotation.setPosition(fPosition, now);
+		rotation.setVelocity(0, now);
+		rotation.setTargetPosition(fPosition, now);
+		fnStartSpin(now);
+	}
+
+	/**
+	 * Releases the pie with the given velocity, in degrees per second. The
+	 * slice heading for the snap angle is selected and the spring brings it
+	 * there.
+	 */
+	private void fnFling(float fVelocity, long now) {
+		float fProjected = rotation.getPosition() + fVelocity
+				* ROTATION_FLING_PROJECTION;
+		int iPreviousIndex = iSelectedIndex;
+		int iSlice = sliceAt(fSnapAngle - fProjected);
+		if (iSlice >= 0 && iSlice != iSelectedIndex) {
+			iSelectedIndex = iSlice;
 			if (onSelectedListener != null) {
 				onSelectedListener.onSelected(iSelectedIndex);
 			}
-			invalidate();
-		} else if (legendRectF.contains(event.getX(), event.getY())) {
-			for (int i = iDataSize; i > 0; i--) {
-				System.out.println("SYS " + event.getX() + " "
-						+ (legendRectF.width() / iDataSize) * (i - 1));
-				if (event.getX() > (legendRectF.width() / iDataSize) * (i - 1)) {
-					iSelectedIndex = i - 1;
-					break;
+			fnOnSelectionChanged(iPreviousIndex);
+		}
+		rotation.setVelocity(fVelocity, now);
+		fnSnapSelected(fProjected, now);
+	}
+
+	/**
+	 * Sets the rotation target, nearest to the given angle, that puts the
+	 * middle of the selected slice onto the snap angle.
+	 */
+	private void fnSnapSelected(float fNear, long now) {
+		float fTarget = fNear;
+		if (iSelectedIndex >= 0 && iSelectedIndex < iDataSize) {
+			float fMiddle = renderer.geometry.getStartAngle(iSelectedIndex)
+					+ renderer.geometry.getSweepAngle(iSelectedIndex) / 2;
+			fTarget += fnNormalizeAngle(fSnapAngle - fMiddle - fNear);
+		}
+		rotation.setTargetPosition(fTarget, now);
+		fnStartSpin(now);
+	}
+
+	private void fnStartSpin(long now) {
+		if (!bSpinning) {
+			bSpinning = true;
+			lSpinStart = now;
+			fnUpdateLayerType();
+		}
+		FrameScheduler.getInstance().register(rotator);
+	}
+
+	/**
+	 * @return the angle wrapped into -180 to 180 degrees
+	 */
+	private static float fnNormalizeAngle(float fDegrees) {
+		fDegrees %= DEGREE_360;
+		if (fDegrees > DEGREE_360 / 2) {
+			fDegrees -= DEGREE_360;
+		} else if (fDegrees <= -DEGREE_360 / 2) {
+			fDegrees += DEGREE_360;
+		}
+		return fDegrees;
+	}
+
+	/**
+	 * Scrolls the legend while a drag that started on it goes on.
+	 * 
+	 * @return true if the event belongs to such a drag
+	 */
+	private boolean fnOnLegendTouch(MotionEvent event) {
+		if (!bLegendTouch) {
+			return false;
+		}
+		float fY = event.getY();
+		switch (event.getActionMasked()) {
+		case MotionEvent.ACTION_MOVE:
+			if (!bLegendDragging && Math.abs(fY - fLegendTouchY) > iTouchSlop) {
+				bLegendDragging = true;
+				fLegendTouchY = fY;
+				ViewParent parent = getParent();
+				if (parent != null) {
+					parent.requestDisallowInterceptTouchEvent(true);
 				}
 			}
-			if (onSelectedListener != null) {
-				onSelectedListener.onSelected(iSelectedIndex);
+			if (bLegendDragging) {
+				fnScrollLegend(fLegendTouchY - fY);
+				fLegendTouchY = fY;
 			}
-			invalidate();
+			break;
+		case MotionEvent.ACTION_UP:
+			if (!bLegendDragging) {
+				fnSelectLegendEntry(event.getX(), fY);
+			}
+			bLegendTouch = false;
+			break;
+		case MotionEvent.ACTION_CANCEL:
+			bLegendTouch = false;
+			break;
 		}
-		return super.onTouchEvent(event);
+		return true;
 	}
 
-	private void fnGetDisplayMetrics(Context cxt) {
-		final DisplayMetrics dm = cxt.getResources().getDisplayMetrics();
-		fDensity = dm.density;
+	private void fnSelectLegendEntry(float fX, float fY) {
+		int iPreviousIndex = iSelectedIndex;
+		int iTouchedIndex = renderer.legendLayout.indexAt(fX, fY,
+				renderer.fLegendScroll);
+		if (iTouchedIndex >= 0) {
+			iSelectedIndex = iTouchedIndex;
+		}
+		if (onSelectedListener != null) {
+			onSelectedListener.onSelected(iSelectedIndex);
+		}
+		fnOnSelectionChanged(iPreviousIndex);
 	}
 
-	private float fnGetRealPxFromDp(float fDp) {
-		return (fDensity != 1.0f) ? fDensity * fDp : fDp;
+	/**
+	 * Returns the slice under the given angle, measured in degrees clockwise
+	 * from the positive x axis, using the same index as touch selection.
+	 * 
+	 * @return index of the slice, or -1 if no slice covers the angle
+	 */
+	public int sliceAt(float angle) {
+		float fDegree = angle % DEGREE_360;
+		if (fDegree < 0) {
+			fDegree += DEGREE_360;
+		}
+		return renderer.geometry.indexOf(fDegree);
 	}
 
-	private Dynamics[] dataPoints;
+	private DynamicsBank dataPoints;
 	private String[] mLegendNames;
-	private int[] mDataValues;
+	private double[] mDataValues;
+	private double[] mInputValues;
+	private String[] mInputNames;
+	private boolean bIntegralValues = true;
+	private boolean bAggregated = false;
+
+	/**
+	 * Bounds the number of slices drawn for large data sets. Values beyond the
+	 * largest ones, and values narrower than the minimum angle or than a pixel
+	 * on the measured chart, are folded into a single "Other" slice that is
+	 * placed last. Slice indices reported to the {@link OnSelectedLisenter}
+	 * refer to the aggregated slices. Applies from the next
+	 * {@link #setData(int[], String[])}.
+	 * 
+	 * @param maxSlices
+	 *            largest number of slices to draw, including "Other", or 0 for
+	 *            no limit
+	 * @param minSliceAngle
+	 *            narrowest slice to draw in degrees, or 0 to keep all values
+	 */
+	public void setAggregation(int maxSlices, float minSliceAngle) {
+		aggregator.setMaxSlices(maxSlices);
+		aggregator.setMinSweepAngle(minSliceAngle);
+	}
+
+	public void setOtherLabel(String otherLabel) {
+		aggregator.setOtherLabel(otherLabel);
+	}
+
+	/**
+	 * @return the slice that the value at the given index of the last
+	 *         {@link #setData(int[], String[])} call is drawn in
+	 */
+	public int getSliceOf(int dataIndex) {
+		return bAggregated ? aggregator.getSliceOf(dataIndex) : dataIndex;
+	}
 
 	public void setData(int[] dataValues, String[] legendNames) {
+		double[] values = new double[dataValues.length];
+		for (int i = 0; i < dataValues.length; i++) {
+			values[i] = dataValues[i];
+		}
+		fnOfferData(values, legendNames, true);
+	}
+
+	public void setData(long[] dataValues, String[] legendNames) {
+		double[] values = new double[dataValues.length];
+		for (int i = 0; i < dataValues.length; i++) {
+			values[i] = dataValues[i];
+		}
+		fnOfferData(values, legendNames, true);
+	}
+
+	public void setData(double[] dataValues, String[] legendNames) {
+		fnOfferData(dataValues.clone(), legendNames, false);
+	}
+
+	/**
+	 * Selects how bursts of {@link #setData} calls are merged before they
+	 * retarget the slices.
+	 * 
+	 * @param updatePolicy
+	 *            one of {@link #UPDATE_POLICY_IMMEDIATE},
+	 *            {@link #UPDATE_POLICY_LATEST_PER_FRAME} or
+	 *            {@link #UPDATE_POLICY_MIN_INTERVAL}
+	 * @param minInterval
+	 *            shortest time between two applied updates in ms, used by
+	 *            {@link #UPDATE_POLICY_MIN_INTERVAL}
+	 */
+	public void setUpdatePolicy(int updatePolicy, long minInterval) {
+		iUpdatePolicy = updatePolicy;
+		lMinUpdateInterval = minInterval;
+	}
+
+	/**
+	 * Drops updates that change no value by more than the given fraction of
+	 * the total. Skipped changes still count towards later updates, as values
+	 * are always compared with the data on screen.
+	 * 
+	 * @param deltaThreshold
+	 *            fraction of the total, 0 applies every update
+	 */
+	public void setUpdateDeltaThreshold(float deltaThreshold) {
+		fUpdateDeltaThreshold = deltaThreshold;
+	}
+
+	/**
+	 * @return number of updates that were superseded by a later update before
+	 *         they were applied
+	 */
+	public long getMergedUpdateCount() {
+		return lMergedUpdates.get();
+	}
+
+	/**
+	 * @return number of updates that were dropped by the delta threshold
+	 */
+	public long getDroppedUpdateCount() {
+		return lDroppedUpdates.get();
+	}
+
+	private void fnOfferData(double[] dataValues, String[] legendNames,
+			boolean integralValues) {
+		long now = AnimationUtils.currentAnimationTimeMillis();
+		if (iUpdatePolicy == UPDATE_POLICY_IMMEDIATE
+				|| (iUpdatePolicy == UPDATE_POLICY_MIN_INTERVAL
+						&& pendingSnapshot.get() == null && now
+						- lLastUpdateTime >= lMinUpdateInterval)) {
+			fnApplyData(dataValues, legendNames, integralValues, now);
+			return;
+		}
+		Snapshot snapshot = new Snapshot(dataValues, legendNames,
+				integralValues);
+		if (pendingSnapshot.getAndSet(snapshot) != null) {
+			lMergedUpdates.incrementAndGet();
+		}
+		FrameScheduler.getInstance().register(ingestor);
+	}
+
+	private void fnApplyData(double[] dataValues, String[] legendNames,
+			boolean integralValues, long now) {
+		if (fnIsBelowDeltaThreshold(dataValues, legendNames)) {
+			lDroppedUpdates.incrementAndGet();
+			return;
+		}
+		lLastUpdateTime = now;
+		final FrameStats stats = mFrameStats;
+		long lStart = stats != null ? System.nanoTime() : 0;
+		fnSetData(dataValues, legendNames, integralValues);
+		if (stats != null) {
+			stats.recordData(System.nanoTime() - lStart);
+		}
+	}
+
+	private boolean fnIsBelowDeltaThreshold(double[] dataValues,
+			String[] legendNames) {
+		if (fUpdateDeltaThreshold <= 0 || mInputValues == null
+				|| mInputValues.length != dataValues.length
+				|| !Arrays.equals(mInputNames, legendNames)) {
+			return false;
+		}
+		double dThreshold = fUpdateDeltaThreshold * Math.abs(totalValue);
+		for (int i = 0; i < dataValues.length; i++) {
+			if (Math.abs(dataValues[i] - mInputValues[i]) > dThreshold) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Publishes a new data set from any thread without blocking. The UI thread
+	 * picks up the latest published set on its next frame, so bursts of
+	 * updates are coalesced to at most one {@link #setData} per frame and
+	 * intermediate sets are dropped.
+	 * 
+	 * @param legendNames
+	 *            names of the values, or null to keep the current names
+	 */
+	public void publishData(double[] dataValues, String[] legendNames) {
+		Snapshot snapshot = new Snapshot(dataValues.clone(),
+				legendNames == null ? null : legendNames.clone(), false);
+		if (pendingSnapshot.getAndSet(snapshot) == null) {
+			sMainHandler.post(scheduleIngestor);
+		} else {
+			lMergedUpdates.incrementAndGet();
+		}
+	}
+
+	private String[] fnReuseLegendNames(int count) {
+		if (mInputNames != null && mInputNames.length == count) {
+			return mInputNames;
+		}
+		String[] legendNames = new String[count];
+		for (int i = 0; i < count; i++) {
+			if (mInputNames != null && i < mInputNames.length) {
+				legendNames[i] = mInputNames[i];
+			} else {
+				legendNames[i] = "";
+			}
+		}
+		return legendNames;
+	}
+
+	/**
+	 * Changes a single value of the last data set. Only the affected slice is
+	 * retargeted and the total is adjusted by the difference, so the cost
+	 * does not grow with the size of the data set. With aggregation enabled
+	 * the value stays in the slice it was folded into by the last
+	 * {@link #setData(int[], String[])} call.
+	 * 
+	 * @param index
+	 *            index of the value in the last data set
+	 * @throws IllegalStateException
+	 *             if no data has been set yet
+	 * @throws IndexOutOfBoundsException
+	 *             if the last data set has no value at the index
+	 */
+	public void updateValue(int index, double value) {
+		if (mInputValues == null) {
+			throw new IllegalStateException(
+					"updateValue called before setData");
+		}
+		if (index < 0 || index >= mInputValues.length) {
+			throw new IndexOutOfBoundsException("Index " + index
+					+ " out of a data set of " + mInputValues.length
+					+ " values");
+		}
+		double dDelta = value - mInputValues[index];
+		mInputValues[index] = value;
+		totalValue += dDelta;
+		if (bIntegralValues && value != Math.rint(value)) {
+			bIntegralValues = false;
+		}
+
+		int slice = getSliceOf(index);
+		if (mDataValues != mInputValues) {
+			mDataValues[slice] += dDelta;
+		}
+		long now = AnimationUtils.currentAnimationTimeMillis();
+		dataPoints.setTargetPosition(slice, (float) mDataValues[slice], now);
+
+		String valueLabel = fnFormatValue(mDataValues[slice]);
+		if (!valueLabel.equals(mValueLabels[slice])) {
+			mValueLabels[slice] = valueLabel;
+			if (bLegendLayoutAsync) {
+				fnRequestLegendLayout();
+			} else {
+				renderer.legendLayout.updateValue(slice, valueLabel);
+				fnInvalidateLegendCell(slice);
+			}
+		}
+		fnUpdateCenterText();
+		fnStartAnimation();
+	}
+
+	private void fnSetData(double[] dataValues, String[] legendNames,
+			boolean integralValues) {
+		mInputValues = dataValues;
+		mInputNames = legendNames;
+		bIntegralValues = integralValues;
+		bAggregated = aggregator.isEnabled();
+		if (bAggregated) {
+			float fMinSweepAngle = aggregator.getMinSweepAngle();
+			if (renderer.isLaidOut()) {
+				// never draw slices narrower than a pixel
+				aggregator.setMinSweepAngle(Math.max(fMinSweepAngle,
+						(float) (DEGREE_360 / (Math.PI * renderer.r.width()))));
+			}
+			aggregator.aggregate(dataValues, legendNames);
+			aggregator.setMinSweepAngle(fMinSweepAngle);
+			dataValues = aggregator.getValues();
+			legendNames = aggregator.getNames();
+		}
+
 		totalValue = 0;
 		mDataValues = dataValues;
 		iDataSize = dataValues.length;
 		iSelectedIndex = -1;
+		String[] oldLegendNames = mLegendNames;
 		mLegendNames = legendNames;
 		long now = AnimationUtils.currentAnimationTimeMillis();
-		if (dataPoints == null || dataPoints.length != dataValues.length) {
-			dataPoints = new Dynamics[dataValues.length];
+		boolean bResized = dataPoints == null
+				|| dataPoints.size() != dataValues.length;
+		if (bResized) {
+			dataPoints = new DynamicsBank(dataValues.length, 80f, 0.8f);
+			dataPoints.setFixedTimestep(bFixedTimestep);
+			iSliceColors = mPalette.getColors(dataValues.length).clone();
+			bColorsAnimating = false;
+			mValueLabels = new String[dataValues.length];
 
 			for (int i = 0; i < dataValues.length; i++) {
 				totalValue += dataValues[i];
-				dataPoints[i] = new Dynamics(80f, 0.8f);
-				dataPoints[i].setPosition(0, now);
-				dataPoints[i].setTargetPosition(dataValues[i], now);
+				dataPoints.setPosition(i, 0, now);
+				dataPoints.setTargetPosition(i, (float) dataValues[i], now);
 			}
-			removeCallbacks(animator);
-			post(animator);
 		} else {
 			for (int i = 0; i < dataValues.length; i++) {
 				totalValue += dataValues[i];
-				dataPoints[i].setTargetPosition(dataValues[i], now);
+				dataPoints.setTargetPosition(i, (float) dataValues[i], now);
+			}
+		}
+		for (int i = 0; i < dataValues.length; i++) {
+			String valueLabel = fnFormatValue(dataValues[i]);
+			if (!bResized
+					&& (!valueLabel.equals(mValueLabels[i]) || !legendNames[i]
+							.equals(oldLegendNames[i]))) {
+				fnInvalidateLegendCell(i);
+			}
+			mValueLabels[i] = valueLabel;
+		}
+		renderer.setSlices(iDataSize, iSliceColors, mLegendNames, mValueLabels);
+		fnRequestLegendLayout();
+		if (bResized) {
+			invalidate();
+			int iRows = renderer.getLegendRowsFor(renderer.iSize);
+			if (renderer.isLaidOut() && iRows != renderer.iLegendRows) {
+				requestLayout();
+			}
+		}
+		fnUpdateCenterText();
+		fnStartAnimation();
+	}
+
+	private void fnStartAnimation() {
+		if (!FrameScheduler.getInstance().isRegistered(animator)) {
+			lAnimationStart = AnimationUtils.currentAnimationTimeMillis();
+		}
+		renderer.geometry.update(dataPoints, totalValue);
+		renderer.invalidateGeometry();
+		bSettled = false;
+		fnInvalidateCache();
+		fnUpdateLayerType();
+		FrameScheduler.getInstance().register(animator);
+	}
+
+	/**
+	 * Moves the slice colors one frame towards the palette.
+	 * 
+	 * @return true once every color reached its target
+	 */
+	private boolean fnStepColors(long now) {
+		boolean bColorsSettled = true;
+		for (int i = 0; i < iDataSize; i++) {
+			ColorDynamics colorDynamics = mColorDynamics[i];
+			colorDynamics.update(now);
+			if (!colorDynamics.isAtRest()) {
+				bColorsSettled &= colorDynamics
+						.snapToTargetIfSettled(COLOR_SETTLE_TOLERANCE);
 			}
-			removeCallbacks(animator);
-			post(animator);
+			iSliceColors[i] = colorDynamics.getColor();
 		}
+		return bColorsSettled;
+	}
+
+	private void fnUpdateCenterText() {
+		renderer.setCenterText(fnFormatValue(totalValue) + " Projects");
+	}
+
+	private String fnFormatValue(double value) {
+		return PieChartRenderer.formatValue(value, bIntegralValues);
 	}
 }
\ No newline at end of file
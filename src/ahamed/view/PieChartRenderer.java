@@ -0,0 +1,552 @@
+/**
+ * Copyright 2014 Riyaz Ahamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package ahamed.view;
+
+import ahamed.view.utils.BitmapPool;
+import ahamed.view.utils.Palette;
+import ahamed.view.utils.PieGeometry;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Paint.Align;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.util.DisplayMetrics;
+import android.util.TypedValue;
+
+/**
+ * <p>
+ * Draws a {@link PieChart} onto any {@link Canvas}: the slices, the legend and
+ * the center label. {@link PieChart} animates the geometry of a renderer and
+ * draws it in onDraw, while on its own a renderer draws data at rest, which
+ * lets reports render charts to bitmaps without a view hierarchy.<br>
+ * A renderer is not thread safe, use one per thread.
+ * </p>
+ */
+public class PieChartRenderer {
+
+	public interface OnRenderedListener {
+		/**
+		 * Called with each rendered chart. The bitmap goes back to the pool
+		 * once the call returns, so it has to be written out or copied here.
+		 */
+		public abstract void onRendered(int index, Bitmap bitmap);
+	}
+
+	private static final int DEGREE_360 = PieGeometry.DEGREE_360;
+
+	/** Largest angle spanned by one quad of a tessellated ring segment */
+	private static final float VERTEX_SEGMENT_ANGLE = 4f;
+
+	final Paint paintPieFill;
+	final Paint paintPieBorder;
+	final Paint paintPieText;
+	final Paint paintLegendText;
+
+	final int iShift;
+	final int iMargin;
+	final float mPrimaryTextSize;
+	final float mSecondaryTextSize;
+
+	private final float fDensity;
+
+	int iSize = 0;
+	int iCenterWidth = 0;
+	final RectF r = new RectF();
+	final RectF innerRectF = new RectF();
+	final RectF legendRectF = new RectF();
+	float fLegendRowHeight = 0f;
+	float fLegendCellMinWidth;
+	int iLegendMaxRows = 2;
+	int iLegendRows = 1;
+
+	// geometry and label cache, rebuilt only when the data or springs change
+	final PieGeometry geometry = new PieGeometry();
+	int iDataSize = 0;
+	int[] iSliceColors;
+	String[] mLegendNames;
+	String[] mValueLabels;
+	private String mCenterText = "0 Projects";
+	private float fCenterTextSize = -1f;
+	private int iCenterTextHeight;
+	private final Rect textBounds = new Rect();
+
+	LegendLayout legendLayout = new LegendLayout();
+	float fLegendScroll = 0f;
+
+	/** Rotation of the pie around its center, in degrees clockwise */
+	float fRotation = 0f;
+
+	private final SlicePaths mSlicePaths = new SlicePaths();
+	private boolean bTessellate = false;
+	private boolean bVerticesValid = false;
+	private int iVerticesSelected = -1;
+	private float[] fVertices = new float[0];
+	private int[] iVertexColors = new int[0];
+	private int iVertexCount = 0;
+
+	private int iBackgroundColor = Color.TRANSPARENT;
+	private Palette mPalette = Palette.DEFAULT;
+	private boolean bLegendStale = false;
+	private Canvas mBatchCanvas;
+
+	public PieChartRenderer(Context context) {
+		DisplayMetrics dm = context.getResources().getDisplayMetrics();
+		fDensity = dm.density;
+
+		mPrimaryTextSize = TypedValue.applyDimension(
+				TypedValue.COMPLEX_UNIT_SP, 18, dm);
+		mSecondaryTextSize = TypedValue.applyDimension(
+				TypedValue.COMPLEX_UNIT_SP, 14, dm);
+
+		iShift = (int) fnGetRealPxFromDp(10);
+		iMargin = (int) fnGetRealPxFromDp(40);
+		fLegendCellMinWidth = fnGetRealPxFromDp(72);
+
+		// used for paint circle
+		paintPieFill = new Paint(Paint.ANTI_ALIAS_FLAG);
+		paintPieFill.setStyle(Paint.Style.FILL);
+
+		// used for paint border
+		paintPieBorder = new Paint(Paint.ANTI_ALIAS_FLAG);
+		paintPieBorder.setStyle(Paint.Style.STROKE);
+		paintPieBorder.setStrokeWidth(fnGetRealPxFromDp(3));
+		paintPieBorder.setColor(Color.WHITE);
+
+		paintPieText = new Paint(Paint.ANTI_ALIAS_FLAG);
+		paintPieText.setTextAlign(Align.CENTER);
+		paintPieText.setColor(Color.DKGRAY);
+
+		paintLegendText = new Paint(Paint.ANTI_ALIAS_FLAG);
+		paintLegendText.setTextAlign(Align.CENTER);
+	}
+
+	private float fnGetRealPxFromDp(float fDp) {
+		return (fDensity != 1.0f) ? fDensity * fDp : fDp;
+	}
+
+	/**
+	 * Sets the data to draw at rest, with the colors of the palette and
+	 * default value labels.
+	 */
+	public void setData(double[] dataValues, String[] legendNames) {
+		boolean bIntegral = true;
+		double totalValue = 0;
+		for (int i = 0; i < dataValues.length; i++) {
+			totalValue += dataValues[i];
+			if (dataValues[i] != Math.rint(dataValues[i])) {
+				bIntegral = false;
+			}
+		}
+
+		String[] valueLabels = new String[dataValues.length];
+		for (int i = 0; i < dataValues.length; i++) {
+			valueLabels[i] = formatValue(dataValues[i], bIntegral);
+		}
+		setSlices(dataValues.length, mPalette.getColors(dataValues.length),
+				legendNames, valueLabels);
+		setCenterText(formatValue(totalValue, bIntegral) + " Projects");
+		geometry.update(dataValues, totalValue);
+		invalidateGeometry();
+		fLegendScroll = 0;
+		bLegendStale = true;
+	}
+
+	/**
+	 * Sets the slices to draw. The arrays are kept by reference, and their
+	 * angles are set through {@link #geometry}.
+	 */
+	void setSlices(int count, int[] sliceColors, String[] legendNames,
+			String[] valueLabels) {
+		iDataSize = count;
+		iSliceColors = sliceColors;
+		mLegendNames = legendNames;
+		mValueLabels = valueLabels;
+		geometry.setCount(count);
+		mSlicePaths.setCount(count);
+	}
+
+	void setCenterText(String centerText) {
+		mCenterText = centerText;
+		fCenterTextSize = -1f;
+	}
+
+	/**
+	 * Marks the slice angles as changed, to be picked up by the next draw.
+	 */
+	void invalidateGeometry() {
+		bVerticesValid = false;
+	}
+
+	/**
+	 * Sets the palette used by the following {@link #setData} calls.
+	 */
+	public void setPalette(Palette palette) {
+		mPalette = palette;
+	}
+
+	/**
+	 * @see PieChart#setTessellated(boolean)
+	 */
+	public void setTessellated(boolean tessellated) {
+		bTessellate = tessellated;
+		bVerticesValid = false;
+	}
+
+	/**
+	 * @see PieChart#setLegendMaxRows(int)
+	 */
+	public void setLegendMaxRows(int maxRows) {
+		iLegendMaxRows = Math.max(1, maxRows);
+	}
+
+	/**
+	 * @see PieChart#setLegendCellMinWidth(float)
+	 */
+	public void setLegendCellMinWidth(float minWidth) {
+		fLegendCellMinWidth = minWidth;
+	}
+
+	/**
+	 * Sets the color bitmaps of {@link #renderAll} are cleared to, transparent
+	 * by default.
+	 */
+	public void setBackgroundColor(int color) {
+		iBackgroundColor = color;
+	}
+
+	/**
+	 * @return the number of legend rows the current data needs at the given
+	 *         chart size
+	 */
+	int getLegendRowsFor(int size) {
+		float lR = size / 2 - iMargin / 2;
+		return LegendLayout.visibleRowsFor(iDataSize, lR * 2,
+				fLegendCellMinWidth, iLegendMaxRows);
+	}
+
+	/**
+	 * @return height of the chart and its legend when drawn at the given size
+	 */
+	public int getHeightFor(int size) {
+		return size + size / 2 / 2 * getLegendRowsFor(size);
+	}
+
+	/**
+	 * Places the chart in a square of the given size with the legend below
+	 * it.
+	 *
+	 * @return true if the legend rectangle moved, in which case the legend
+	 *         has to be laid out again
+	 */
+	boolean layout(int size) {
+		iSize = size;
+		iCenterWidth = size / 2;
+		int iR = iCenterWidth - iMargin;
+		int oR = iR / 2;
+		float lR = iCenterWidth - iMargin / 2;
+		fLegendRowHeight = iCenterWidth / 2;
+		iLegendRows = getLegendRowsFor(size);
+		int legendHeight = (int) fLegendRowHeight * iLegendRows;
+
+		if (r.right != iCenterWidth + iR) {
+			r.set(iCenterWidth - iR, // top
+					iCenterWidth - iR, // left
+					iCenterWidth + iR, // rights
+					iCenterWidth + iR); // bottom
+			innerRectF.set(iCenterWidth - oR, // top
+					iCenterWidth - oR, // left
+					iCenterWidth + oR, // rights
+					iCenterWidth + oR); // bottom
+			// rebuild the ring segments for the new size
+			mSlicePaths.invalidate();
+			bVerticesValid = false;
+		}
+		float fLegendBottom = iCenterWidth + iR + legendHeight;
+		if (legendRectF.isEmpty() || legendRectF.bottom != fLegendBottom
+				|| legendRectF.right != iCenterWidth + lR) {
+			legendRectF.set(iCenterWidth - lR, // top
+					iCenterWidth + iR, // left
+					iCenterWidth + lR, // rights
+					fLegendBottom); // bottom
+			return true;
+		}
+		return false;
+	}
+
+	boolean isLaidOut() {
+		return iSize > 0;
+	}
+
+	/**
+	 * @return height of the chart and its legend for the size of the last
+	 *         {@link #layout(int)}
+	 */
+	int getHeight() {
+		return iSize + (int) fLegendRowHeight * iLegendRows;
+	}
+
+	/**
+	 * Lays the legend out on the calling thread and measures the rows visible
+	 * at the current scroll offset.
+	 */
+	void layoutLegend() {
+		if (!isLaidOut() || mLegendNames == null) {
+			return;
+		}
+		legendLayout.layout(mLegendNames, mValueLabels, iDataSize,
+				legendRectF, fLegendRowHeight, fLegendCellMinWidth,
+				mSecondaryTextSize, mPrimaryTextSize);
+		legendLayout.measureRows(fLegendScroll);
+	}
+
+	/**
+	 * Draws the data at rest with no slice selected, the chart filling a
+	 * square of the given size at the top left of the canvas and the legend
+	 * below it.
+	 *
+	 * @see #getHeightFor(int)
+	 */
+	public void draw(Canvas canvas, int size) {
+		if (layout(size) || bLegendStale) {
+			layoutLegend();
+			bLegendStale = false;
+		}
+		drawChart(canvas, -1);
+	}
+
+	void drawChart(Canvas canvas, int iSelectedIndex) {
+		// vertex meshes are not supported by hardware accelerated canvases
+		boolean bVertices = bTessellate && !canvas.isHardwareAccelerated();
+		boolean bRotated = fRotation != 0f;
+		if (bRotated) {
+			// spinning moves the whole pie, the slice geometry stays as is
+			canvas.save(Canvas.MATRIX_SAVE_FLAG);
+			canvas.rotate(fRotation, r.centerX(), r.centerY());
+		}
+		if (bVertices) {
+			if (!bVerticesValid || iVerticesSelected != iSelectedIndex) {
+				fnBuildVertices(iSelectedIndex);
+			}
+			canvas.drawVertices(Canvas.VertexMode.TRIANGLES, iVertexCount,
+					fVertices, 0, null, 0, iVertexColors, 0, null, 0, 0,
+					paintPieFill);
+		}
+		for (int i = 0; i < iDataSize; i++) {
+			if (bVertices && iSelectedIndex != i) {
+				continue;
+			}
+			paintPieFill.setColor(iSliceColors[i]);
+
+			float fStartAngle = geometry.getStartAngle(i);
+			float fSweepAngle = geometry.getSweepAngle(i);
+			Path path = mSlicePaths.get(i, r, innerRectF, fStartAngle,
+					fSweepAngle);
+
+			if (iSelectedIndex == i) {
+				canvas.save(Canvas.MATRIX_SAVE_FLAG);
+				float fAngle = fStartAngle + fSweepAngle / 2;
+				double dxRadius = Math.toRadians((fAngle + DEGREE_360)
+						% DEGREE_360);
+				float fY = (float) Math.sin(dxRadius);
+				float fX = (float) Math.cos(dxRadius);
+				canvas.translate(fX * iShift, fY * iShift);
+			}
+
+			canvas.drawPath(path, paintPieFill);
+
+			if (iSelectedIndex == i) {
+				canvas.drawPath(path, paintPieBorder);
+				canvas.restore();
+			}
+		}
+		if (bRotated) {
+			canvas.restore();
+		}
+		drawLegend(canvas);
+		fnMeasureCenterText();
+		canvas.drawText(mCenterText, innerRectF.centerX(),
+				innerRectF.centerY() + iCenterTextHeight / 2, paintPieText);
+	}
+
+	/**
+	 * Renders one chart per data set into bitmaps taken from the pool, each
+	 * at the given size with its legend below.
+	 */
+	public void renderAll(double[][] dataValues, String[][] legendNames,
+			int size, BitmapPool pool, OnRenderedListener listener) {
+		if (mBatchCanvas == null) {
+			mBatchCanvas = new Canvas();
+		}
+		for (int i = 0; i < dataValues.length; i++) {
+			setData(dataValues[i], legendNames[i]);
+
+			Bitmap bitmap = pool.acquire(size, getHeightFor(size));
+			bitmap.eraseColor(iBackgroundColor);
+			mBatchCanvas.setBitmap(bitmap);
+			draw(mBatchCanvas, size);
+			mBatchCanvas.setBitmap(null);
+			try {
+				listener.onRendered(i, bitmap);
+			} finally {
+				pool.release(bitmap);
+			}
+		}
+	}
+
+	/**
+	 * Tessellates every slice but the selected one into quads of at most
+	 * {@link #VERTEX_SEGMENT_ANGLE} degrees, two triangles each.
+	 */
+	private void fnBuildVertices(int iSelectedIndex) {
+		int iQuads = 0;
+		for (int i = 0; i < iDataSize; i++) {
+			if (i != iSelectedIndex) {
+				iQuads += (int) Math.ceil(geometry.getSweepAngle(i)
+						/ VERTEX_SEGMENT_ANGLE);
+			}
+		}
+		iVertexCount = iQuads * 12;
+		if (fVertices.length < iVertexCount) {
+			fVertices = new float[iVertexCount];
+			// older platforms check the colors against the number of floats
+			iVertexColors = new int[iVertexCount];
+		}
+
+		float fCenterX = r.centerX();
+		float fCenterY = r.centerY();
+		float fOuter = r.width() / 2;
+		float fInner = innerRectF.width() / 2;
+		int v = 0;
+		int c = 0;
+		for (int i = 0; i < iDataSize; i++) {
+			float fSweep = geometry.getSweepAngle(i);
+			if (i == iSelectedIndex || fSweep <= 0) {
+				continue;
+			}
+			int iSegments = (int) Math.ceil(fSweep / VERTEX_SEGMENT_ANGLE);
+			float fStep = fSweep / iSegments;
+			double dxFrom = Math.toRadians(geometry.getStartAngle(i));
+			float fCos0 = (float) Math.cos(dxFrom);
+			float fSin0 = (float) Math.sin(dxFrom);
+			for (int k = 1; k <= iSegments; k++) {
+				double dxTo = Math.toRadians(geometry.getStartAngle(i) + fStep
+						* k);
+				float fCos1 = (float) Math.cos(dxTo);
+				float fSin1 = (float) Math.sin(dxTo);
+				float fOuterX0 = fCenterX + fCos0 * fOuter;
+				float fOuterY0 = fCenterY + fSin0 * fOuter;
+				float fInnerX1 = fCenterX + fCos1 * fInner;
+				float fInnerY1 = fCenterY + fSin1 * fInner;
+
+				fVertices[v++] = fOuterX0;
+				fVertices[v++] = fOuterY0;
+				fVertices[v++] = fCenterX + fCos1 * fOuter;
+				fVertices[v++] = fCenterY + fSin1 * fOuter;
+				fVertices[v++] = fInnerX1;
+				fVertices[v++] = fInnerY1;
+
+				fVertices[v++] = fOuterX0;
+				fVertices[v++] = fOuterY0;
+				fVertices[v++] = fInnerX1;
+				fVertices[v++] = fInnerY1;
+				fVertices[v++] = fCenterX + fCos0 * fInner;
+				fVertices[v++] = fCenterY + fSin0 * fInner;
+
+				for (int j = 0; j < 6; j++) {
+					iVertexColors[c++] = iSliceColors[i];
+				}
+				fCos0 = fCos1;
+				fSin0 = fSin1;
+			}
+		}
+		iVerticesSelected = iSelectedIndex;
+		bVerticesValid = true;
+	}
+
+	/**
+	 * Draws the legend rows in view. Their labels were measured when the
+	 * legend was laid out or scrolled, nothing is measured here.
+	 */
+	private void drawLegend(Canvas canvas) {
+		LegendLayout layout = legendLayout;
+		if (layout.count != iDataSize) {
+			// a layout for the current data is still being computed
+			return;
+		}
+
+		// only the rows inside the legend are drawn
+		int iFirst = layout.firstVisibleRow(fLegendScroll) * layout.columns;
+		int iEnd = Math.min(iDataSize, (layout.lastVisibleRow(fLegendScroll) + 1)
+				* layout.columns);
+		if (iFirst >= iEnd) {
+			return;
+		}
+		canvas.save(Canvas.CLIP_SAVE_FLAG);
+		canvas.clipRect(legendRectF);
+
+		paintLegendText.setTextSize(mSecondaryTextSize);
+		for (int i = iFirst; i < iEnd; i++) {
+			paintLegendText.setColor(iSliceColors[i]);
+			canvas.drawText(layout.getName(i), layout.centerX(i),
+					layout.rowTop(i, fLegendScroll) + layout.nameBaseline,
+					paintLegendText);
+		}
+
+		for (int i = iFirst; i < iEnd; i++) {
+			paintPieFill.setColor(iSliceColors[i]);
+			float fRowTop = layout.rowTop(i, fLegendScroll);
+			float fLeft = layout.cellLeft(i);
+			canvas.drawRect(fLeft, fRowTop + layout.swatchTop, fLeft
+					+ layout.cellWidth, fRowTop + layout.swatchBottom,
+					paintPieFill);
+		}
+
+		paintLegendText.setTextSize(mPrimaryTextSize);
+		for (int i = iFirst; i < iEnd; i++) {
+			paintLegendText.setColor(iSliceColors[i]);
+			canvas.drawText(layout.getValue(i), layout.centerX(i),
+					layout.rowTop(i, fLegendScroll) + layout.valueBaseline,
+					paintLegendText);
+		}
+		canvas.restore();
+	}
+
+	/**
+	 * Measures the center label only when the label or the hole size has
+	 * changed since the last measurement.
+	 */
+	private void fnMeasureCenterText() {
+		float fTextSize = innerRectF.width() / 7F;
+		paintPieText.setTextSize(fTextSize);
+		if (fTextSize != fCenterTextSize) {
+			paintPieText.getTextBounds(mCenterText, 0, mCenterText.length(),
+					textBounds);
+			iCenterTextHeight = textBounds.height();
+			fCenterTextSize = fTextSize;
+		}
+	}
+
+	static String formatValue(double value, boolean integral) {
+		if (integral && Math.abs(value) < Long.MAX_VALUE) {
+			return Long.toString(Math.round(value));
+		}
+		return Double.toString(value);
+	}
+}
@@ -0,0 +1,433 @@
+/**
+ * Copyright 2014 Riyaz Ahamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package ahamed.view;
+
+import ahamed.view.utils.DynamicsBank;
+import ahamed.view.utils.FrameScheduler;
+import ahamed.view.utils.FrameScheduler.FrameCallback;
+import ahamed.view.utils.FrameStats;
+import ahamed.view.utils.Palette;
+import ahamed.view.utils.PieGeometry;
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Paint.Align;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.animation.AnimationUtils;
+
+/**
+ * <p>
+ * Draws a grid of small donut charts in a single view. All charts share one
+ * set of paints and the color table of {@link PieChart}, their slices are
+ * springs of a single {@link DynamicsBank} stepped by one frame callback, and
+ * a frame ends in a single invalidation. Each chart keeps its own
+ * {@link PieGeometry} and ring segments, drawn the way {@link PieChart} draws
+ * its slices. Meant for screens that would
+ * otherwise hold dozens of {@link PieChart} views.
+ * </p>
+ */
+public class PieDashboard extends View {
+
+	public interface OnChartSelectedListener {
+		public abstract void onSelected(int iChartIndex, int iSliceIndex);
+	}
+
+	private FrameCallback animator = new FrameCallback() {
+		@Override
+		public boolean doFrame(long now) {
+			final FrameStats stats = mFrameStats;
+			long lStart = stats != null ? System.nanoTime() : 0;
+			boolean bWasAtRest = dataPoints.isAtRest();
+			dataPoints.update(now);
+			boolean settled = dataPoints.isAtRest()
+					|| dataPoints.snapToTargetIfSettled(fnGetSettleTolerance());
+			// after the snap, so the settling frame draws the final angles
+			fnUpdateGeometries();
+			invalidate();
+			if (stats != null) {
+				stats.recordStep(System.nanoTime() - lStart, !bWasAtRest);
+				if (settled) {
+					stats.recordSettle(now - lAnimationStart);
+				}
+			}
+			return !settled;
+		}
+	};
+
+	private OnChartSelectedListener onChartSelectedListener = null;
+
+	private Paint paintPieFill;
+	private Paint paintPieText;
+	private int bgColor;
+	private Palette mPalette = Palette.DEFAULT;
+	private int[] iColors = new int[0];
+
+	private int iColumns = 4;
+	private int iChartCount = 0;
+	private int iCellSize = 0;
+	private float fRadius = 0f;
+	private int iTextHeight = 0;
+
+	/** Springs of every chart, chart c owns the range from its offset */
+	private DynamicsBank dataPoints = new DynamicsBank(0, 80f, 0.8f);
+	private int[] iOffsets = new int[1];
+	private double[] dTotals = new double[0];
+	private String[] mLabels = new String[0];
+	private PieGeometry[] mGeometries = new PieGeometry[0];
+	private SlicePaths[] mSlicePaths = new SlicePaths[0];
+
+	private boolean bFixedTimestep = false;
+	private FrameStats mFrameStats = null;
+	private long lAnimationStart = 0;
+
+	private final RectF mPieRect = new RectF();
+	/** Rings of a cell, centered on the origin and translated to each cell */
+	private final RectF mOuterRect = new RectF();
+	private final RectF mInnerRect = new RectF();
+	private final Rect textBounds = new Rect();
+
+	public PieDashboard(Context context, AttributeSet attrs) {
+		super(context, attrs);
+
+		TypedArray a = context.obtainStyledAttributes(attrs,
+				R.styleable.PieChart_Layout);
+		bgColor = a.getColor(R.styleable.PieChart_Layout_bg_color,
+				Color.WHITE);
+		a.recycle();
+
+		this.setBackgroundColor(bgColor);
+
+		paintPieFill = new Paint(Paint.ANTI_ALIAS_FLAG);
+		paintPieFill.setStyle(Paint.Style.FILL);
+
+		paintPieText = new Paint(Paint.ANTI_ALIAS_FLAG);
+		paintPieText.setTextAlign(Align.CENTER);
+		paintPieText.setColor(Color.DKGRAY);
+	}
+
+	public void setOnChartSelectedListener(OnChartSelectedListener listener) {
+		this.onChartSelectedListener = listener;
+	}
+
+	/**
+	 * @see PieChart#setFixedTimestep(boolean)
+	 */
+	public void setFixedTimestep(boolean fixedTimestep) {
+		bFixedTimestep = fixedTimestep;
+		dataPoints.setFixedTimestep(fixedTimestep);
+	}
+
+	/**
+	 * @see PieChart#setFrameStats(FrameStats)
+	 */
+	public void setFrameStats(FrameStats stats) {
+		mFrameStats = stats;
+	}
+
+	/**
+	 * Sets the palette every chart takes its slice colors from.
+	 */
+	public void setPalette(Palette palette) {
+		mPalette = palette;
+		iColors = palette.getColors(iColors.length);
+		invalidate();
+	}
+
+	/**
+	 * Sets the number of charts across the grid.
+	 */
+	public void setColumns(int columns) {
+		iColumns = Math.max(1, columns);
+		// the view may keep its size, so onSizeChanged is not guaranteed
+		fnUpdateCellGeometry(getWidth());
+		requestLayout();
+		invalidate();
+	}
+
+	/**
+	 * Sets the number of charts. Charts that are kept retain their data, new
+	 * ones start out empty.
+	 */
+	public void setChartCount(int count) {
+		if (count == iChartCount) {
+			return;
+		}
+		int[] sizes = new int[count];
+		for (int c = 0; c < Math.min(count, iChartCount); c++) {
+			sizes[c] = iOffsets[c + 1] - iOffsets[c];
+		}
+		fnResize(sizes);
+
+		double[] totals = new double[count];
+		String[] labels = new String[count];
+		for (int c = 0; c < count; c++) {
+			totals[c] = c < iChartCount ? dTotals[c] : 0;
+			labels[c] = c < iChartCount ? mLabels[c] : "";
+		}
+		dTotals = totals;
+		mLabels = labels;
+		iChartCount = count;
+		fnUpdateGeometries();
+		requestLayout();
+		invalidate();
+	}
+
+	public int getChartCount() {
+		return iChartCount;
+	}
+
+	/**
+	 * Animates one chart of the grid to new values.
+	 *
+	 * @param label
+	 *            text drawn in the hole of the chart
+	 */
+	public void setData(int chart, double[] dataValues, String label) {
+		final FrameStats stats = mFrameStats;
+		long lStart = stats != null ? System.nanoTime() : 0;
+		int iSize = iOffsets[chart + 1] - iOffsets[chart];
+		if (iSize != dataValues.length) {
+			int[] sizes = new int[iChartCount];
+			for (int c = 0; c < iChartCount; c++) {
+				sizes[c] = iOffsets[c + 1] - iOffsets[c];
+			}
+			sizes[chart] = dataValues.length;
+			fnResize(sizes);
+		}
+
+		long now = AnimationUtils.currentAnimationTimeMillis();
+		int iOffset = iOffsets[chart];
+		double total = 0;
+		for (int i = 0; i < dataValues.length; i++) {
+			total += dataValues[i];
+			dataPoints.setTargetPosition(iOffset + i, (float) dataValues[i],
+					now);
+		}
+		dTotals[chart] = total;
+		mLabels[chart] = label;
+		mGeometries[chart].update(dataPoints, iOffset, total);
+		fnStartAnimation(now);
+		if (stats != null) {
+			stats.recordData(System.nanoTime() - lStart);
+		}
+	}
+
+	public void setData(int chart, int[] dataValues, String label) {
+		double[] values = new double[dataValues.length];
+		for (int i = 0; i < dataValues.length; i++) {
+			values[i] = dataValues[i];
+		}
+		setData(chart, values, label);
+	}
+
+	/**
+	 * Rebuilds the spring bank for new chart sizes, carrying over the state
+	 * of every spring that still exists. New springs start from zero.
+	 */
+	private void fnResize(int[] sizes) {
+		int[] offsets = new int[sizes.length + 1];
+		for (int c = 0; c < sizes.length; c++) {
+			offsets[c + 1] = offsets[c] + sizes[c];
+		}
+		DynamicsBank bank = new DynamicsBank(offsets[sizes.length], 80f, 0.8f);
+		bank.setFixedTimestep(bFixedTimestep);
+		long now = AnimationUtils.currentAnimationTimeMillis();
+		for (int i = 0; i < bank.size(); i++) {
+			bank.setPosition(i, 0, now);
+		}
+		for (int c = 0; c < Math.min(sizes.length, iChartCount); c++) {
+			int iKept = Math.min(sizes[c], iOffsets[c + 1] - iOffsets[c]);
+			for (int i = 0; i < iKept; i++) {
+				int iOld = iOffsets[c] + i;
+				int iNew = offsets[c] + i;
+				bank.setPosition(iNew, dataPoints.getPosition(iOld), now);
+				bank.setVelocity(iNew, dataPoints.getVelocity(iOld), now);
+				bank.setTargetPosition(iNew, dataPoints.getTargetPos(iOld),
+						now);
+			}
+		}
+		dataPoints = bank;
+		iOffsets = offsets;
+
+		PieGeometry[] geometries = new PieGeometry[sizes.length];
+		SlicePaths[] slicePaths = new SlicePaths[sizes.length];
+		int iMaxSize = 0;
+		for (int c = 0; c < sizes.length; c++) {
+			boolean bKept = c < mGeometries.length;
+			geometries[c] = bKept ? mGeometries[c] : new PieGeometry();
+			geometries[c].setCount(sizes[c]);
+			slicePaths[c] = bKept ? mSlicePaths[c] : new SlicePaths();
+			slicePaths[c].setCount(sizes[c]);
+			iMaxSize = Math.max(iMaxSize, sizes[c]);
+		}
+		mGeometries = geometries;
+		mSlicePaths = slicePaths;
+		// one table for all charts, so slice i has the same color everywhere
+		iColors = mPalette.getColors(iMaxSize);
+	}
+
+	private void fnUpdateGeometries() {
+		for (int c = 0; c < mGeometries.length; c++) {
+			mGeometries[c].update(dataPoints, iOffsets[c], dTotals[c]);
+		}
+	}
+
+	private void fnStartAnimation(long now) {
+		FrameScheduler scheduler = FrameScheduler.getInstance();
+		if (!scheduler.isRegistered(animator)) {
+			lAnimationStart = now;
+		}
+		scheduler.register(animator);
+	}
+
+	/**
+	 * @return the value change that moves a slice edge by less than one pixel
+	 *         in the chart with the smallest values per slice
+	 */
+	private float fnGetSettleTolerance() {
+		float fTolerance = Float.MAX_VALUE;
+		for (int c = 0; c < iChartCount; c++) {
+			float fChartTolerance = PieGeometry.settleTolerance(dTotals[c],
+					iOffsets[c + 1] - iOffsets[c], 2 * fRadius);
+			if (fChartTolerance > 0) {
+				fTolerance = Math.min(fTolerance, fChartTolerance);
+			}
+		}
+		return fTolerance == Float.MAX_VALUE ? 0f : fTolerance;
+	}
+
+	@Override
+	protected void onAttachedToWindow() {
+		super.onAttachedToWindow();
+		// resume an animation cut short by the detach
+		if (dataPoints != null && !dataPoints.isAtRest()) {
+			fnStartAnimation(AnimationUtils.currentAnimationTimeMillis());
+		}
+	}
+
+	@Override
+	protected void onDetachedFromWindow() {
+		super.onDetachedFromWindow();
+		FrameScheduler.getInstance().unregister(animator);
+	}
+
+	@Override
+	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+		int width = MeasureSpec.getSize(widthMeasureSpec);
+		int cellSize = width / iColumns;
+		int rows = (iChartCount + iColumns - 1) / iColumns;
+		setMeasuredDimension(width,
+				resolveSize(cellSize * rows, heightMeasureSpec));
+	}
+
+	@Override
+	protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+		super.onSizeChanged(w, h, oldw, oldh);
+		fnUpdateCellGeometry(w);
+	}
+
+	/**
+	 * Computes the geometry shared by every cell for the given view width and
+	 * the current column count, and drops the ring segments built for the
+	 * previous one.
+	 */
+	private void fnUpdateCellGeometry(int width) {
+		iCellSize = width / iColumns;
+		fRadius = iCellSize * 0.4f;
+		mOuterRect.set(-fRadius, -fRadius, fRadius, fRadius);
+		mInnerRect.set(-fRadius / 2, -fRadius / 2, fRadius / 2, fRadius / 2);
+		for (int c = 0; c < mSlicePaths.length; c++) {
+			mSlicePaths[c].invalidate();
+		}
+		fnUpdateGeometries();
+		paintPieText.setTextSize(fRadius / 3.5f);
+		paintPieText.getTextBounds("0", 0, 1, textBounds);
+		iTextHeight = textBounds.height();
+	}
+
+	@Override
+	protected void onDraw(Canvas canvas) {
+		final FrameStats stats = mFrameStats;
+		long lStart = stats != null ? System.nanoTime() : 0;
+		super.onDraw(canvas);
+		if (iCellSize == 0) {
+			return;
+		}
+		for (int c = 0; c < iChartCount; c++) {
+			float fCenterX = (c % iColumns + 0.5f) * iCellSize;
+			float fCenterY = (c / iColumns + 0.5f) * iCellSize;
+			mPieRect.set(fCenterX - fRadius, fCenterY - fRadius, fCenterX
+					+ fRadius, fCenterY + fRadius);
+			if (canvas.quickReject(mPieRect, Canvas.EdgeType.AA)) {
+				continue;
+			}
+			fnDrawChart(canvas, c, fCenterX, fCenterY);
+		}
+		if (stats != null) {
+			stats.recordDraw(System.nanoTime() - lStart);
+		}
+	}
+
+	private void fnDrawChart(Canvas canvas, int c, float fCenterX,
+			float fCenterY) {
+		PieGeometry geometry = mGeometries[c];
+		SlicePaths slicePaths = mSlicePaths[c];
+		canvas.save();
+		canvas.translate(fCenterX, fCenterY);
+		for (int i = 0; i < geometry.getCount(); i++) {
+			paintPieFill.setColor(iColors[i]);
+			canvas.drawPath(slicePaths.get(i, mOuterRect, mInnerRect,
+					geometry.getStartAngle(i), geometry.getSweepAngle(i)),
+					paintPieFill);
+		}
+		canvas.drawText(mLabels[c], 0, iTextHeight / 2, paintPieText);
+		canvas.restore();
+	}
+
+	@Override
+	public boolean onTouchEvent(MotionEvent event) {
+		if (event.getActionMasked() != MotionEvent.ACTION_DOWN
+				|| iCellSize == 0 || onChartSelectedListener == null) {
+			return super.onTouchEvent(event);
+		}
+		int iColumn = (int) (event.getX() / iCellSize);
+		int iChart = (int) (event.getY() / iCellSize) * iColumns + iColumn;
+		if (iColumn >= iColumns || iChart >= iChartCount) {
+			return super.onTouchEvent(event);
+		}
+		float fCenterX = (iColumn + 0.5f) * iCellSize;
+		float fCenterY = (iChart / iColumns + 0.5f) * iCellSize;
+		float fX = event.getX() - fCenterX;
+		float fY = event.getY() - fCenterY;
+		if (fX * fX + fY * fY > fRadius * fRadius) {
+			return super.onTouchEvent(event);
+		}
+
+		float fDegree = PieGeometry.angleOf(event.getX(), event.getY(),
+				fCenterX, fCenterY);
+		int iSlice = mGeometries[iChart].indexOf(fDegree);
+		if (iSlice != -1) {
+			onChartSelectedListener.onSelected(iChart, iSlice);
+		}
+		return super.onTouchEvent(event);
+	}
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright 2014 Riyaz Ahamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package ahamed.view;
+
+import ahamed.view.utils.PieGeometry;
+import android.graphics.Path;
+import android.graphics.RectF;
+
+/**
+ * <p>
+ * Ring segments of the slices of a donut chart. Each slice keeps its path and
+ * the angles it was built for, so a path is rebuilt only when its slice moved
+ * or the rings were resized.
+ * </p>
+ */
+class SlicePaths {
+
+	private Path[] paths = new Path[0];
+	private float[] startAngles = new float[0];
+	private float[] sweepAngles = new float[0];
+
+	/**
+	 * Makes room for the given number of slices, keeping the paths already
+	 * built when the arrays are large enough.
+	 */
+	void setCount(int count) {
+		if (paths.length < count) {
+			paths = new Path[count];
+			startAngles = new float[count];
+			sweepAngles = new float[count];
+		}
+	}
+
+	/**
+	 * Forces every path to be rebuilt, for when the rings change size.
+	 */
+	void invalidate() {
+		for (int i = 0; i < sweepAngles.length; i++) {
+			sweepAngles[i] = Float.NaN;
+		}
+	}
+
+	/**
+	 * @return the segment of the ring between the outer and inner ovals,
+	 *         rebuilt only when its angles differ from the ones it was built
+	 *         for
+	 */
+	Path get(int i, RectF outer, RectF inner, float start, float sweep) {
+		Path path = paths[i];
+		if (path == null) {
+			path = new Path();
+			paths[i] = path;
+		} else if (startAngles[i] == start && sweepAngles[i] == sweep) {
+			return path;
+		}
+		path.reset();
+		if (sweep >= PieGeometry.DEGREE_360) {
+			// a full ring, the inner circle winds the other way to cut the hole
+			path.addCircle(outer.centerX(), outer.centerY(), outer.width() / 2,
+					Path.Direction.CW);
+			path.addCircle(inner.centerX(), inner.centerY(), inner.width() / 2,
+					Path.Direction.CCW);
+		} else if (sweep > 0) {
+			path.arcTo(outer, start, sweep, true);
+			path.arcTo(inner, start + sweep, -sweep);
+			path.close();
+		}
+		startAngles[i] = start;
+		sweepAngles[i] = sweep;
+		return path;
+	}
+}
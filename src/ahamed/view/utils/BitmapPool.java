@@ -0,0 +1,86 @@
+/**
+ * Copyright 2014 Riyaz Ahamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package ahamed.view.utils;
+
+import java.util.ArrayList;
+
+import android.graphics.Bitmap;
+
+/**
+ * <p>
+ * Keeps released ARGB_8888 bitmaps around so that rendering many charts of
+ * the same size allocates a bitmap only once. The pool is bounded and safe to
+ * share between threads.
+ * </p>
+ */
+public class BitmapPool {
+
+	private final ArrayList<Bitmap> bitmaps = new ArrayList<Bitmap>();
+	private final int maxSize;
+
+	/**
+	 * @param maxSize
+	 *            most bitmaps kept for reuse, further released bitmaps are
+	 *            recycled. 0 turns pooling off.
+	 */
+	public BitmapPool(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * @return a bitmap of the given size, reused from the pool if one is
+	 *         available. Its content is undefined.
+	 */
+	public synchronized Bitmap acquire(int width, int height) {
+		for (int i = bitmaps.size() - 1; i >= 0; i--) {
+			Bitmap bitmap = bitmaps.get(i);
+			if (bitmap.getWidth() == width && bitmap.getHeight() == height) {
+				bitmaps.remove(i);
+				return bitmap;
+			}
+		}
+		return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+	}
+
+	/**
+	 * Hands a bitmap back to the pool. It must not be used afterwards.
+	 */
+	public synchronized void release(Bitmap bitmap) {
+		if (bitmap.isRecycled()) {
+			return;
+		}
+		if (maxSize <= 0) {
+			// pooling is off
+			bitmap.recycle();
+			return;
+		}
+		if (bitmaps.size() >= maxSize) {
+			// make room for the most recent size
+			bitmaps.remove(0).recycle();
+		}
+		bitmaps.add(bitmap);
+	}
+
+	/**
+	 * Recycles every pooled bitmap.
+	 */
+	public synchronized void clear() {
+		for (int i = 0; i < bitmaps.size(); i++) {
+			bitmaps.get(i).recycle();
+		}
+		bitmaps.clear();
+	}
+}
@@ -16,9 +16,6 @@
 
 package ahamed.view.utils;
 
-import android.graphics.Color;
-
-
 /**
  * <p>
  *         {@link ColorDynamics} class used to Animate the Colors in the View.<br>
@@ -40,21 +37,28 @@ public class ColorDynamics {
         final int r = clamp(red.getPosition());
         final int g = clamp(green.getPosition());
         final int b = clamp(blue.getPosition());
-        return Color.argb(a, r, g, b);
+        return (a << 24) | (r << 16) | (g << 8) | b;
     }
 
     public void setColor(int color, long now) {
-        alpha.setPosition(Color.alpha(color), now);
-        red.setPosition(Color.red(color), now);
-        green.setPosition(Color.green(color), now);
-        blue.setPosition(Color.blue(color), now);
+        alpha.setPosition((color >>> 24) & 0xFF, now);
+        red.setPosition((color >>> 16) & 0xFF, now);
+        green.setPosition((color >>> 8) & 0xFF, now);
+        blue.setPosition(color & 0xFF, now);
     }
 
     public void setTargetColor(int color, long now) {
-        alpha.setTargetPosition(Color.alpha(color), now);
-        red.setTargetPosition(Color.red(color), now);
-        green.setTargetPosition(Color.green(color), now);
-        blue.setTargetPosition(Color.blue(color), now);
+        alpha.setTargetPosition((color >>> 24) & 0xFF, now);
+        red.setTargetPosition((color >>> 16) & 0xFF, now);
+        green.setTargetPosition((color >>> 8) & 0xFF, now);
+        blue.setTargetPosition(color & 0xFF, now);
+    }
+
+    public void setFixedTimestep(boolean fixedTimestep) {
+        alpha.setFixedTimestep(fixedTimestep);
+        red.setFixedTimestep(fixedTimestep);
+        green.setFixedTimestep(fixedTimestep);
+        blue.setFixedTimestep(fixedTimestep);
     }
 
     public void update(long now) {
@@ -68,6 +72,34 @@ public class ColorDynamics {
         return alpha.isAtRest() && red.isAtRest() && green.isAtRest() && blue.isAtRest();
     }
 
+    /**
+     * @return predicted time in ms until every channel stays within the given
+     *         tolerance of its target
+     * @see Dynamics#getSettleTime(float)
+     */
+    public long getSettleTime(float tolerance) {
+        long settleTime = alpha.getSettleTime(tolerance);
+        settleTime = Math.max(settleTime, red.getSettleTime(tolerance));
+        settleTime = Math.max(settleTime, green.getSettleTime(tolerance));
+        settleTime = Math.max(settleTime, blue.getSettleTime(tolerance));
+        return settleTime;
+    }
+
+    /**
+     * Snaps every channel whose remaining motion stays below the given
+     * tolerance onto its target color.
+     *
+     * @return true if the color is now at rest on its target
+     * @see Dynamics#snapToTargetIfSettled(float)
+     */
+    public boolean snapToTargetIfSettled(float tolerance) {
+        boolean settled = alpha.snapToTargetIfSettled(tolerance);
+        settled &= red.snapToTargetIfSettled(tolerance);
+        settled &= green.snapToTargetIfSettled(tolerance);
+        settled &= blue.snapToTargetIfSettled(tolerance);
+        return settled;
+    }
+
     private int clamp(float value) {
         if (value < 0) {
             return 0;
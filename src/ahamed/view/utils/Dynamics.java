@@ -15,10 +15,6 @@
  */
 package ahamed.view.utils;
 
-import android.annotation.SuppressLint;
-import android.util.FloatMath;
-
-@SuppressLint("FloatMath")
 public class Dynamics {
 
 	/**
@@ -27,6 +23,12 @@ public class Dynamics {
 	 */
 	private static final float TOLERANCE = 0.01f;
 
+	/** Length of one integration step in fixed timestep mode, in ms */
+	static final int FIXED_STEP = 4;
+
+	/** Longest stall, in ms, that fixed timestep mode catches up on */
+	static final int MAX_CATCH_UP = 1000;
+
 	/** The position the dynamics should to be at */
 	private float targetPosition;
 
@@ -45,6 +47,12 @@ public class Dynamics {
 	/** The damping that the dynamics has */
 	private float damping;
 
+	/** Whether the dynamics integrates in fixed steps of {@link #FIXED_STEP} */
+	private boolean fixedTimestep;
+
+	/** Time not yet integrated in fixed timestep mode, in ms */
+	private long accumulator;
+
 	/**
 	 * @author Riyaz Ahamed <br>
 	 *         <p>
@@ -54,7 +62,7 @@ public class Dynamics {
 	 */
 	public Dynamics(float springiness, float dampingRatio) {
 		this.springiness = springiness;
-		this.damping = dampingRatio * 2 * FloatMath.sqrt(springiness);
+		this.damping = dampingRatio * 2 * (float) Math.sqrt(springiness);
 	}
 
 	public void setPosition(float position, long now) {
@@ -72,24 +80,111 @@ public class Dynamics {
 		lastTime = now;
 	}
 
+	/**
+	 * Selects fixed timestep integration. Instead of a single step of the
+	 * frame's length, every update runs as many {@link #FIXED_STEP} ms steps as
+	 * fit in the elapsed time and carries the remainder to the next update, so
+	 * the position depends only on the elapsed time and not on the frame rate.
+	 */
+	public void setFixedTimestep(boolean fixedTimestep) {
+		this.fixedTimestep = fixedTimestep;
+		accumulator = 0;
+	}
+
+	public boolean isFixedTimestep() {
+		return fixedTimestep;
+	}
+
 	public void update(long now) {
-		float dt = Math.min(now - lastTime, 50) / 1000f;
+		if (fixedTimestep) {
+			accumulator = Math.min(accumulator + now - lastTime, MAX_CATCH_UP);
+			while (accumulator >= FIXED_STEP) {
+				step(FIXED_STEP / 1000f);
+				accumulator -= FIXED_STEP;
+			}
+		} else {
+			step(Math.min(now - lastTime, 50) / 1000f);
+		}
+		lastTime = now;
+	}
 
+	private void step(float dt) {
 		float x = position - targetPosition;
 		float acceleration = -springiness * x - damping * velocity;
 
 		velocity += acceleration * dt;
 		position += velocity * dt;
-
-		lastTime = now;
 	}
 
 	public boolean isAtRest() {
 		final boolean standingStill = Math.abs(velocity) < TOLERANCE;
-		final boolean isAtTarget = (targetPosition - position) < TOLERANCE;
+		final boolean isAtTarget = Math.abs(targetPosition - position) < TOLERANCE;
 		return standingStill && isAtTarget;
 	}
 
+	/**
+	 * Predicts, from the spring constants and the current state, how long the
+	 * dynamics needs until its distance to the target stays below the given
+	 * tolerance.
+	 * 
+	 * @return remaining settle time in ms, 0 if already settled
+	 */
+	public long getSettleTime(float tolerance) {
+		return settleTime(position - targetPosition, velocity, springiness,
+				damping, tolerance);
+	}
+
+	/**
+	 * Moves the dynamics onto its target and stops it if the motion left is
+	 * predicted to stay below the given tolerance.
+	 * 
+	 * @return true if the dynamics is now at rest on its target
+	 */
+	public boolean snapToTargetIfSettled(float tolerance) {
+		if (amplitude(position - targetPosition, velocity, springiness,
+				damping) > tolerance) {
+			return false;
+		}
+		position = targetPosition;
+		velocity = 0;
+		return true;
+	}
+
+	/**
+	 * Largest distance from the target that a spring released at displacement
+	 * x with velocity v can still reach. Exact for underdamped springs, an
+	 * upper estimate otherwise.
+	 */
+	static float amplitude(float x, float v, float springiness, float damping) {
+		final float decay = damping / 2;
+		final float discriminant = springiness - decay * decay;
+		if (discriminant > 0) {
+			final float omega = (float) Math.sqrt(discriminant);
+			final float y = (v + decay * x) / omega;
+			return (float) Math.sqrt(x * x + y * y);
+		}
+		return Math.abs(x) + Math.abs(v) / slowestDecay(springiness, damping);
+	}
+
+	static long settleTime(float x, float v, float springiness, float damping,
+			float tolerance) {
+		final float amplitude = amplitude(x, v, springiness, damping);
+		if (amplitude <= tolerance) {
+			return 0;
+		}
+		final float decay = damping / 2;
+		final float rate = springiness > decay * decay ? decay : slowestDecay(
+				springiness, damping);
+		return (long) Math.ceil(Math.log(amplitude / tolerance) / rate * 1000);
+	}
+
+	/** Decay rate of the slower mode of a critically or overdamped spring */
+	private static float slowestDecay(float springiness, float damping) {
+		final float decay = damping / 2;
+		final float spread = decay * decay - springiness;
+		return decay - (float) Math.sqrt(Math.max(spread, 0));
+	}
+
 	public float getPosition() {
 		return position;
 	}
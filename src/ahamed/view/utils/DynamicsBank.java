@@ -0,0 +1,252 @@
+/**
+ * Copyright 2014 Riyaz Ahamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package ahamed.view.utils;
+
+/**
+ * <p>
+ * A fixed size group of {@link Dynamics} springs that share the same
+ * springiness and damping. The state of every spring is kept in parallel
+ * primitive arrays, so {@link #update(long)} steps all of them in a single
+ * loop with the same semantics as {@link Dynamics#update(long)}.
+ * </p>
+ */
+public class DynamicsBank {
+
+	/**
+	 * Used to compare floats, if the difference is smaller than this, they are
+	 * considered equal
+	 */
+	private static final float TOLERANCE = 0.01f;
+
+	/** The positions the springs should to be at */
+	private final float[] targetPosition;
+
+	/** The current positions of the springs */
+	private final float[] position;
+
+	/** The current velocities of the springs */
+	private final float[] velocity;
+
+	/** The time the last update of each spring happened */
+	private final long[] lastTime;
+
+	/** The amount of springiness that every spring has */
+	private final float springiness;
+
+	/** The damping that every spring has */
+	private final float damping;
+
+	/** Time not yet integrated by each spring in fixed timestep mode */
+	private final int[] accumulator;
+
+	/** Whether the bank integrates in fixed steps of {@link Dynamics#FIXED_STEP} */
+	private boolean fixedTimestep;
+
+	/** Number of springs in the bank */
+	private final int size;
+
+	/** Whether every spring was at rest after the last update */
+	private boolean atRest = true;
+
+	public DynamicsBank(int size, float springiness, float dampingRatio) {
+		this.size = size;
+		this.springiness = springiness;
+		this.damping = dampingRatio * 2 * (float) Math.sqrt(springiness);
+		targetPosition = new float[size];
+		position = new float[size];
+		velocity = new float[size];
+		lastTime = new long[size];
+		accumulator = new int[size];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void setPosition(int index, float position, long now) {
+		this.position[index] = position;
+		lastTime[index] = now;
+		atRest = false;
+	}
+
+	public void setVelocity(int index, float velocity, long now) {
+		this.velocity[index] = velocity;
+		lastTime[index] = now;
+		atRest = false;
+	}
+
+	public void setTargetPosition(int index, float targetPosition, long now) {
+		this.targetPosition[index] = targetPosition;
+		lastTime[index] = now;
+		atRest = false;
+	}
+
+	/**
+	 * Selects fixed timestep integration for every spring in the bank.
+	 * 
+	 * @see Dynamics#setFixedTimestep(boolean)
+	 */
+	public void setFixedTimestep(boolean fixedTimestep) {
+		this.fixedTimestep = fixedTimestep;
+		for (int i = 0; i < size; i++) {
+			accumulator[i] = 0;
+		}
+	}
+
+	public boolean isFixedTimestep() {
+		return fixedTimestep;
+	}
+
+	/**
+	 * Steps every spring in the bank to the given time.
+	 */
+	public void update(long now) {
+		if (fixedTimestep) {
+			updateFixed(now);
+			return;
+		}
+
+		final float[] position = this.position;
+		final float[] velocity = this.velocity;
+		final float[] targetPosition = this.targetPosition;
+		final long[] lastTime = this.lastTime;
+		final float springiness = this.springiness;
+		final float damping = this.damping;
+
+		boolean rest = true;
+		for (int i = 0; i < size; i++) {
+			float dt = Math.min(now - lastTime[i], 50) / 1000f;
+
+			float x = position[i] - targetPosition[i];
+			float acceleration = -springiness * x - damping * velocity[i];
+
+			float v = velocity[i] + acceleration * dt;
+			float p = position[i] + v * dt;
+			velocity[i] = v;
+			position[i] = p;
+			lastTime[i] = now;
+
+			if (Math.abs(v) >= TOLERANCE || Math.abs(targetPosition[i] - p) >= TOLERANCE) {
+				rest = false;
+			}
+		}
+		atRest = rest;
+	}
+
+	private void updateFixed(long now) {
+		final float[] position = this.position;
+		final float[] velocity = this.velocity;
+		final float[] targetPosition = this.targetPosition;
+		final long[] lastTime = this.lastTime;
+		final int[] accumulator = this.accumulator;
+		final float springiness = this.springiness;
+		final float damping = this.damping;
+		final float dt = Dynamics.FIXED_STEP / 1000f;
+
+		boolean rest = true;
+		for (int i = 0; i < size; i++) {
+			long pending = Math.min(accumulator[i] + now - lastTime[i],
+					Dynamics.MAX_CATCH_UP);
+			float v = velocity[i];
+			float p = position[i];
+			final float target = targetPosition[i];
+			while (pending >= Dynamics.FIXED_STEP) {
+				float acceleration = -springiness * (p - target) - damping * v;
+				v += acceleration * dt;
+				p += v * dt;
+				pending -= Dynamics.FIXED_STEP;
+			}
+			velocity[i] = v;
+			position[i] = p;
+			accumulator[i] = (int) pending;
+			lastTime[i] = now;
+
+			if (Math.abs(v) >= TOLERANCE || Math.abs(target - p) >= TOLERANCE) {
+				rest = false;
+			}
+		}
+		atRest = rest;
+	}
+
+	/**
+	 * @return true if every spring was at rest after the last
+	 *         {@link #update(long)} and none has been moved since
+	 */
+	public boolean isAtRest() {
+		return atRest;
+	}
+
+	public boolean isAtRest(int index) {
+		final boolean standingStill = Math.abs(velocity[index]) < TOLERANCE;
+		final boolean isAtTarget = Math.abs(targetPosition[index]
+				- position[index]) < TOLERANCE;
+		return standingStill && isAtTarget;
+	}
+
+	/**
+	 * @return predicted time in ms until every spring stays within the given
+	 *         tolerance of its target
+	 * @see Dynamics#getSettleTime(float)
+	 */
+	public long getSettleTime(float tolerance) {
+		long settleTime = 0;
+		for (int i = 0; i < size; i++) {
+			settleTime = Math.max(settleTime, getSettleTime(i, tolerance));
+		}
+		return settleTime;
+	}
+
+	public long getSettleTime(int index, float tolerance) {
+		return Dynamics.settleTime(position[index] - targetPosition[index],
+				velocity[index], springiness, damping, tolerance);
+	}
+
+	/**
+	 * Moves every spring whose remaining motion is predicted to stay below the
+	 * given tolerance onto its target.
+	 * 
+	 * @return true if every spring is now at rest on its target
+	 * @see Dynamics#snapToTargetIfSettled(float)
+	 */
+	public boolean snapToTargetIfSettled(float tolerance) {
+		boolean settled = true;
+		for (int i = 0; i < size; i++) {
+			if (Dynamics.amplitude(position[i] - targetPosition[i],
+					velocity[i], springiness, damping) > tolerance) {
+				settled = false;
+			} else {
+				position[i] = targetPosition[i];
+				velocity[i] = 0;
+			}
+		}
+		if (settled) {
+			atRest = true;
+		}
+		return settled;
+	}
+
+	public float getPosition(int index) {
+		return position[index];
+	}
+
+	public float getTargetPos(int index) {
+		return targetPosition[index];
+	}
+
+	public float getVelocity(int index) {
+		return velocity[index];
+	}
+}
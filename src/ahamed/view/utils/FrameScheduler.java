@@ -0,0 +1,169 @@
+/**
+ * Copyright 2014 Riyaz Ahamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package ahamed.view.utils;
+
+import java.util.ArrayList;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+import android.view.animation.AnimationUtils;
+
+/**
+ * <p>
+ * Shared frame clock for every view that animates with {@link Dynamics} or
+ * {@link ColorDynamics}. Registered callbacks are stepped together once per
+ * display frame, and the scheduler stops on its own as soon as every callback
+ * reports that its springs are at rest.<br>
+ * Uses {@link Choreographer} where available and falls back to a
+ * {@link Handler} on older platforms. Must only be used from the UI thread.
+ * </p>
+ */
+public class FrameScheduler {
+
+	public interface FrameCallback {
+		/**
+		 * Steps the springs owned by the callback.
+		 *
+		 * @param now
+		 *            animation time of the frame, in the time base of
+		 *            {@link AnimationUtils#currentAnimationTimeMillis()}
+		 * @return true if the callback needs another frame
+		 */
+		public abstract boolean doFrame(long now);
+	}
+
+	/** Frame interval used when Choreographer is not available */
+	private static final long FALLBACK_FRAME_DELAY = 16;
+
+	private static FrameScheduler sInstance;
+
+	private final ArrayList<FrameCallback> callbacks = new ArrayList<FrameCallback>();
+	private final Handler handler = new Handler(Looper.getMainLooper());
+	private Object choreographerCallback;
+
+	private boolean frameScheduled = false;
+	private boolean dispatching = false;
+
+	private final Runnable legacyFrame = new Runnable() {
+		@Override
+		public void run() {
+			onFrame();
+		}
+	};
+
+	public static FrameScheduler getInstance() {
+		if (sInstance == null) {
+			sInstance = new FrameScheduler();
+		}
+		return sInstance;
+	}
+
+	private FrameScheduler() {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+			choreographerCallback = createChoreographerCallback();
+		}
+	}
+
+	/**
+	 * Adds the callback to the next frame. Registering a callback that is
+	 * already active has no effect.
+	 */
+	public void register(FrameCallback callback) {
+		// during dispatch the callback may be about to drop out, so it is
+		// appended again and de-duplicated once the frame is done
+		if (dispatching || !callbacks.contains(callback)) {
+			callbacks.add(callback);
+		}
+		scheduleFrame();
+	}
+
+	public void unregister(FrameCallback callback) {
+		int index;
+		while ((index = callbacks.indexOf(callback)) >= 0) {
+			if (dispatching) {
+				// compacted once the current frame has been dispatched
+				callbacks.set(index, null);
+			} else {
+				callbacks.remove(index);
+			}
+		}
+	}
+
+	public boolean isRegistered(FrameCallback callback) {
+		return callbacks.contains(callback);
+	}
+
+	private void onFrame() {
+		frameScheduled = false;
+		final long now = AnimationUtils.currentAnimationTimeMillis();
+
+		dispatching = true;
+		final int count = callbacks.size();
+		for (int i = 0; i < count; i++) {
+			FrameCallback callback = callbacks.get(i);
+			if (callback != null && !callback.doFrame(now)) {
+				callbacks.set(i, null);
+			}
+		}
+		dispatching = false;
+
+		int size = 0;
+		for (int i = 0; i < callbacks.size(); i++) {
+			FrameCallback callback = callbacks.get(i);
+			if (callback != null && callbacks.indexOf(callback) >= size) {
+				callbacks.set(size++, callback);
+			}
+		}
+		for (int i = callbacks.size() - 1; i >= size; i--) {
+			callbacks.remove(i);
+		}
+
+		if (size > 0) {
+			scheduleFrame();
+		}
+	}
+
+	private void scheduleFrame() {
+		if (frameScheduled) {
+			return;
+		}
+		frameScheduled = true;
+		if (choreographerCallback != null) {
+			postChoreographerCallback();
+		} else {
+			handler.postDelayed(legacyFrame, FALLBACK_FRAME_DELAY);
+		}
+	}
+
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+	private Object createChoreographerCallback() {
+		return new Choreographer.FrameCallback() {
+			@Override
+			public void doFrame(long frameTimeNanos) {
+				onFrame();
+			}
+		};
+	}
+
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+	private void postChoreographerCallback() {
+		Choreographer.getInstance().postFrameCallback(
+				(Choreographer.FrameCallback) choreographerCallback);
+	}
+}
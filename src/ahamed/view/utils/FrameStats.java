@@ -0,0 +1,124 @@
+/**
+ * Copyright 2014 Riyaz Ahamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package ahamed.view.utils;
+
+/**
+ * <p>
+ * Per-frame metrics collected by the views that are handed an instance. Views
+ * without one skip the measurements altogether, so the metrics cost nothing
+ * unless they are enabled. One instance may be shared by several views, all
+ * of them on the UI thread.<br>
+ * Durations of work are recorded in microseconds, settle durations in
+ * milliseconds.
+ * </p>
+ */
+public class FrameStats {
+
+	private final Histogram drawTimes = new Histogram();
+	private final Histogram stepTimes = new Histogram();
+	private final Histogram dataTimes = new Histogram();
+	private final Histogram settleTimes = new Histogram();
+
+	private long framesScheduled;
+	private long framesNeeded;
+
+	/**
+	 * @param nanos
+	 *            time spent in onDraw
+	 */
+	public void recordDraw(long nanos) {
+		drawTimes.record(nanos / 1000);
+	}
+
+	/**
+	 * Records a frame callback.
+	 *
+	 * @param nanos
+	 *            time spent stepping the springs
+	 * @param needed
+	 *            false if the frame found nothing to do
+	 */
+	public void recordStep(long nanos, boolean needed) {
+		stepTimes.record(nanos / 1000);
+		framesScheduled++;
+		if (needed) {
+			framesNeeded++;
+		}
+	}
+
+	/**
+	 * @param nanos
+	 *            time spent applying new data
+	 */
+	public void recordData(long nanos) {
+		dataTimes.record(nanos / 1000);
+	}
+
+	/**
+	 * @param millis
+	 *            time from the start of an animation until it came to rest
+	 */
+	public void recordSettle(long millis) {
+		settleTimes.record(millis);
+	}
+
+	/** @return time spent in onDraw, in microseconds */
+	public Histogram getDrawTimes() {
+		return drawTimes;
+	}
+
+	/** @return time spent stepping springs per frame, in microseconds */
+	public Histogram getStepTimes() {
+		return stepTimes;
+	}
+
+	/** @return time spent applying new data, in microseconds */
+	public Histogram getDataTimes() {
+		return dataTimes;
+	}
+
+	/** @return time animations took to come to rest, in milliseconds */
+	public Histogram getSettleTimes() {
+		return settleTimes;
+	}
+
+	/** @return number of frame callbacks that ran */
+	public long getFramesScheduled() {
+		return framesScheduled;
+	}
+
+	/** @return number of frame callbacks that had something to do */
+	public long getFramesNeeded() {
+		return framesNeeded;
+	}
+
+	public void reset() {
+		drawTimes.reset();
+		stepTimes.reset();
+		dataTimes.reset();
+		settleTimes.reset();
+		framesScheduled = 0;
+		framesNeeded = 0;
+	}
+
+	@Override
+	public String toString() {
+		return "frames scheduled=" + framesScheduled + " needed="
+				+ framesNeeded + "\ndraw us: " + drawTimes + "\nstep us: "
+				+ stepTimes + "\ndata us: " + dataTimes + "\nsettle ms: "
+				+ settleTimes;
+	}
+}
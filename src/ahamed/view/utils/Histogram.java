@@ -0,0 +1,106 @@
+/**
+ * Copyright 2014 Riyaz Ahamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package ahamed.view.utils;
+
+/**
+ * <p>
+ * Allocation free histogram of non-negative values with power of two
+ * buckets. Recording a value costs a few instructions, percentiles are
+ * accurate to the bucket, i.e. within a factor of two, while count, min, max
+ * and mean are exact.
+ * </p>
+ */
+public class Histogram {
+
+	private static final int BUCKET_COUNT = 64;
+
+	/** Bucket i counts the values in [2^(i-1), 2^i), bucket 0 counts zeros */
+	private final long[] buckets = new long[BUCKET_COUNT];
+	private long count;
+	private long sum;
+	private long min = Long.MAX_VALUE;
+	private long max = Long.MIN_VALUE;
+
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+		buckets[BUCKET_COUNT - Long.numberOfLeadingZeros(value)]++;
+		count++;
+		sum += value;
+		if (value < min) {
+			min = value;
+		}
+		if (value > max) {
+			max = value;
+		}
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getMin() {
+		return count == 0 ? 0 : min;
+	}
+
+	public long getMax() {
+		return count == 0 ? 0 : max;
+	}
+
+	public double getMean() {
+		return count == 0 ? 0 : (double) sum / count;
+	}
+
+	/**
+	 * @param percentile
+	 *            between 0 and 100
+	 * @return upper bound of the bucket holding the given percentile, never
+	 *         more than the largest recorded value
+	 */
+	public long getPercentile(double percentile) {
+		if (count == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(count * percentile / 100);
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += buckets[i];
+			if (seen >= rank && seen > 0) {
+				long upper = i == 0 ? 0 : (1L << i) - 1;
+				return Math.max(getMin(), Math.min(upper, max));
+			}
+		}
+		return max;
+	}
+
+	public void reset() {
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			buckets[i] = 0;
+		}
+		count = 0;
+		sum = 0;
+		min = Long.MAX_VALUE;
+		max = Long.MIN_VALUE;
+	}
+
+	@Override
+	public String toString() {
+		return "count=" + count + " min=" + getMin() + " p50="
+				+ getPercentile(50) + " p90=" + getPercentile(90) + " p99="
+				+ getPercentile(99) + " max=" + getMax();
+	}
+}
@@ -0,0 +1,181 @@
+/**
+ * Copyright 2014 Riyaz Ahamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package ahamed.view.utils;
+
+/**
+ * <p>
+ * A source of slice colors. A palette either cycles through fixed colors,
+ * spaces hues evenly around the HSL color wheel, or interpolates between
+ * gradient stops. The ARGB table for a slice count is computed once and
+ * cached, so asking for the same count again costs a lookup.<br>
+ * Palettes are immutable and may be shared between views and threads.
+ * </p>
+ */
+public class Palette {
+
+	/** The colors the charts have always used */
+	public static final Palette DEFAULT = new Palette(new int[] { 0xFF0099CC,
+			0xFFFF8800, 0xFF669900, 0xFF9933CC, 0xFFCC0000, 0xFFBF1A0B,
+			0xFF590202, 0xFFBBBF34, 0xFF038C17, 0xFF2E707B, 0xFF5CC9CB,
+			0xFFCAF1E7 });
+
+	private static final int MODE_CYCLE = 0;
+	private static final int MODE_HSL = 1;
+	private static final int MODE_GRADIENT = 2;
+
+	// most recently used tables, replaced round robin
+	private static final int CACHE_SIZE = 4;
+
+	private final int mode;
+	private final int[] colors;
+	private final float hue, saturation, lightness;
+
+	private final int[][] tables = new int[CACHE_SIZE][];
+	private int nextTable = 0;
+
+	/**
+	 * @param colors
+	 *            ARGB colors, repeated when there are more slices than colors
+	 */
+	public Palette(int[] colors) {
+		this(MODE_CYCLE, colors.clone(), 0f, 0f, 0f);
+		if (colors.length == 0) {
+			throw new IllegalArgumentException("Palette needs a color");
+		}
+	}
+
+	private Palette(int mode, int[] colors, float hue, float saturation,
+			float lightness) {
+		this.mode = mode;
+		this.colors = colors;
+		this.hue = hue;
+		this.saturation = saturation;
+		this.lightness = lightness;
+	}
+
+	/**
+	 * @param startHue
+	 *            hue of the first color, in degrees
+	 * @param saturation
+	 *            0 to 1
+	 * @param lightness
+	 *            0 to 1
+	 * @return a palette giving every slice its own hue, evenly spaced around
+	 *         the color wheel
+	 */
+	public static Palette hsl(float startHue, float saturation, float lightness) {
+		return new Palette(MODE_HSL, null, startHue, saturation, lightness);
+	}
+
+	/**
+	 * @param stops
+	 *            at least two ARGB colors, evenly spaced from the first slice
+	 *            to the last
+	 * @return a palette interpolating the slice colors between the stops
+	 */
+	public static Palette gradient(int[] stops) {
+		if (stops.length < 2) {
+			throw new IllegalArgumentException("Gradient needs two stops");
+		}
+		return new Palette(MODE_GRADIENT, stops.clone(), 0f, 0f, 0f);
+	}
+
+	/**
+	 * @return the colors of the given number of slices. The table is shared
+	 *         and must not be modified.
+	 */
+	public synchronized int[] getColors(int count) {
+		for (int i = 0; i < CACHE_SIZE; i++) {
+			if (tables[i] != null && tables[i].length == count) {
+				return tables[i];
+			}
+		}
+		int[] table = new int[count];
+		for (int i = 0; i < count; i++) {
+			table[i] = fnColorAt(i, count);
+		}
+		tables[nextTable] = table;
+		nextTable = (nextTable + 1) % CACHE_SIZE;
+		return table;
+	}
+
+	private int fnColorAt(int index, int count) {
+		switch (mode) {
+		case MODE_HSL:
+			return hslToArgb(hue + 360f * index / count, saturation, lightness);
+		case MODE_GRADIENT:
+			if (count == 1) {
+				return colors[0];
+			}
+			float fPosition = (float) index / (count - 1) * (colors.length - 1);
+			int iStop = Math.min((int) fPosition, colors.length - 2);
+			return interpolate(colors[iStop], colors[iStop + 1], fPosition
+					- iStop);
+		default:
+			return colors[index % colors.length];
+		}
+	}
+
+	/**
+	 * @param hue
+	 *            in degrees, wrapped into 0 to 360
+	 * @param saturation
+	 *            0 to 1
+	 * @param lightness
+	 *            0 to 1
+	 * @return the opaque ARGB color
+	 */
+	public static int hslToArgb(float hue, float saturation, float lightness) {
+		float h = (hue % 360f + 360f) % 360f / 60f;
+		float c = (1f - Math.abs(2f * lightness - 1f)) * saturation;
+		float x = c * (1f - Math.abs(h % 2f - 1f));
+		float m = lightness - c / 2f;
+		float r, g, b;
+		if (h < 1f) {
+			r = c; g = x; b = 0f;
+		} else if (h < 2f) {
+			r = x; g = c; b = 0f;
+		} else if (h < 3f) {
+			r = 0f; g = c; b = x;
+		} else if (h < 4f) {
+			r = 0f; g = x; b = c;
+		} else if (h < 5f) {
+			r = x; g = 0f; b = c;
+		} else {
+			r = c; g = 0f; b = x;
+		}
+		return 0xFF000000 | (fnChannel(r + m) << 16) | (fnChannel(g + m) << 8)
+				| fnChannel(b + m);
+	}
+
+	/**
+	 * @return the color the given fraction of the way from one color to the
+	 *         other, channel by channel
+	 */
+	public static int interpolate(int from, int to, float fraction) {
+		int result = 0;
+		for (int shift = 0; shift < 32; shift += 8) {
+			int a = (from >>> shift) & 0xFF;
+			int b = (to >>> shift) & 0xFF;
+			result |= (a + Math.round((b - a) * fraction)) << shift;
+		}
+		return result;
+	}
+
+	private static int fnChannel(float value) {
+		return Math.max(0, Math.min(0xFF, Math.round(value * 0xFF)));
+	}
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright 2014 Riyaz Ahamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package ahamed.view.utils;
+
+/**
+ * <p>
+ * Slice angles of a pie and the arithmetic used to hit-test them. Kept free of
+ * any android dependency so the math can be exercised on a plain JVM.
+ * </p>
+ */
+public class PieGeometry {
+
+	public static final int DEGREE_360 = 360;
+
+	/** Angle at which each slice ends, i.e. the running sum of the sweeps */
+	private float[] cumulativeAngles = new float[0];
+	private float[] sweepAngles = new float[0];
+	private int count;
+
+	/**
+	 * Sets the number of slices, reusing the angle arrays when they are large
+	 * enough.
+	 */
+	public void setCount(int count) {
+		if (cumulativeAngles.length < count) {
+			cumulativeAngles = new float[count];
+			sweepAngles = new float[count];
+		}
+		this.count = count;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Recomputes the start and sweep angle of every slice from the current
+	 * spring positions.
+	 */
+	public void update(DynamicsBank values, double totalValue) {
+		update(values, 0, totalValue);
+	}
+
+	/**
+	 * Recomputes the angles from the springs starting at the given offset of
+	 * a bank shared by several pies.
+	 */
+	public void update(DynamicsBank values, int offset, double totalValue) {
+		float angle = 0.0f;
+		for (int i = 0; i < count; i++) {
+			float sweep = totalValue == 0 ? 0f : (float) (values
+					.getPosition(offset + i) / totalValue * DEGREE_360);
+			angle += sweep;
+			cumulativeAngles[i] = angle;
+			sweepAngles[i] = sweep;
+		}
+	}
+
+	/**
+	 * Computes the angles of slices at rest on the given values.
+	 */
+	public void update(double[] values, double totalValue) {
+		float angle = 0.0f;
+		for (int i = 0; i < count; i++) {
+			float sweep = totalValue == 0 ? 0f : (float) (values[i]
+					/ totalValue * DEGREE_360);
+			angle += sweep;
+			cumulativeAngles[i] = angle;
+			sweepAngles[i] = sweep;
+		}
+	}
+
+	public float getStartAngle(int index) {
+		return index == 0 ? 0f : cumulativeAngles[index - 1];
+	}
+
+	public float getEndAngle(int index) {
+		return cumulativeAngles[index];
+	}
+
+	public float getSweepAngle(int index) {
+		return sweepAngles[index];
+	}
+
+	/**
+	 * Binary searches the cumulative angles for the slice containing the given
+	 * angle.
+	 * 
+	 * @return the slice containing the given angle, or -1 if the angle lies
+	 *         past the last slice
+	 */
+	public int indexOf(float degree) {
+		int low = 0;
+		int high = count - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (cumulativeAngles[mid] > degree) {
+				high = mid - 1;
+			} else {
+				low = mid + 1;
+			}
+		}
+		return low < count ? low : -1;
+	}
+
+	/**
+	 * @param diameter
+	 *            outer diameter of the pie, in pixels
+	 * @return the value change that moves a slice edge by less than one pixel
+	 *         on average, or 0 when the pie has no slices or no size
+	 */
+	public static float settleTolerance(double totalValue, int count,
+			float diameter) {
+		if (count == 0 || diameter <= 0) {
+			return 0f;
+		}
+		double circumference = Math.PI * diameter;
+		return (float) (totalValue / circumference / count);
+	}
+
+	/**
+	 * @return angle of the point (x, y) around (centerX, centerY) in degrees,
+	 *         clockwise from the positive x axis, in the range [0, 360)
+	 */
+	public static float angleOf(float x, float y, float centerX, float centerY) {
+		double dx = Math.atan2(y - centerY, x - centerX);
+		float degree = (float) (dx / (2 * Math.PI) * DEGREE_360);
+		return (degree + DEGREE_360) % DEGREE_360;
+	}
+}
@@ -0,0 +1,238 @@
+/**
+ * Copyright 2014 Riyaz Ahamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package ahamed.view.utils;
+
+/**
+ * <p>
+ * Folds the tail of a large data set into a single "Other" slice. The largest
+ * values are picked in one pass with a bounded min-heap, and values whose
+ * sweep would be narrower than a minimum angle are folded as well, so the
+ * number of slices drawn stays bounded whatever the size of the input.<br>
+ * Kept slices stay in their input order, the "Other" slice comes last.
+ * </p>
+ */
+public class SliceAggregator {
+
+	private int maxSlices = 0;
+	private float minSweepAngle = 0f;
+	private String otherLabel = "Other";
+
+	private int[] heap = new int[0];
+	private boolean[] kept = new boolean[0];
+
+	private double[] values;
+	private String[] names;
+	private int[] sliceOf;
+	private int otherIndex = -1;
+
+	/**
+	 * @param maxSlices
+	 *            largest number of slices to produce, including the "Other"
+	 *            slice, or 0 for no limit
+	 */
+	public void setMaxSlices(int maxSlices) {
+		this.maxSlices = maxSlices;
+	}
+
+	public int getMaxSlices() {
+		return maxSlices;
+	}
+
+	/**
+	 * @param minSweepAngle
+	 *            values narrower than this many degrees are folded into the
+	 *            "Other" slice, 0 keeps every value
+	 */
+	public void setMinSweepAngle(float minSweepAngle) {
+		this.minSweepAngle = minSweepAngle;
+	}
+
+	public float getMinSweepAngle() {
+		return minSweepAngle;
+	}
+
+	public void setOtherLabel(String otherLabel) {
+		this.otherLabel = otherLabel;
+	}
+
+	/**
+	 * @return true if the aggregator would fold anything at all
+	 */
+	public boolean isEnabled() {
+		return maxSlices > 0 || minSweepAngle > 0;
+	}
+
+	public void aggregate(double[] inValues, String[] inNames) {
+		final int n = inValues.length;
+		if (kept.length < n) {
+			kept = new boolean[n];
+		}
+
+		double total = 0;
+		for (int i = 0; i < n; i++) {
+			total += inValues[i];
+			kept[i] = true;
+		}
+
+		if (maxSlices > 0 && n > maxSlices) {
+			selectLargest(inValues, maxSlices - 1);
+		}
+
+		if (minSweepAngle > 0 && total > 0) {
+			final double minValue = total * minSweepAngle
+					/ PieGeometry.DEGREE_360;
+			for (int i = 0; i < n; i++) {
+				if (inValues[i] < minValue) {
+					kept[i] = false;
+				}
+			}
+		}
+
+		int keptCount = 0;
+		int foldedIndex = -1;
+		for (int i = 0; i < n; i++) {
+			if (kept[i]) {
+				keptCount++;
+			} else {
+				foldedIndex = foldedIndex == -1 ? i : -2;
+			}
+		}
+		// a single folded value is shown under its own name
+		if (foldedIndex >= 0) {
+			kept[foldedIndex] = true;
+			keptCount++;
+		}
+
+		final int count = keptCount < n ? keptCount + 1 : n;
+		values = new double[count];
+		names = new String[count];
+		if (sliceOf == null || sliceOf.length != n) {
+			sliceOf = new int[n];
+		}
+		otherIndex = keptCount < n ? keptCount : -1;
+
+		int slice = 0;
+		double otherValue = 0;
+		for (int i = 0; i < n; i++) {
+			if (kept[i]) {
+				values[slice] = inValues[i];
+				names[slice] = inNames[i];
+				sliceOf[i] = slice++;
+			} else {
+				otherValue += inValues[i];
+				sliceOf[i] = otherIndex;
+			}
+		}
+		if (otherIndex >= 0) {
+			values[otherIndex] = otherValue;
+			names[otherIndex] = otherLabel;
+		}
+	}
+
+	/**
+	 * Marks all but the k largest values as folded, streaming the input
+	 * through a min-heap of k indices.
+	 */
+	private void selectLargest(double[] inValues, int k) {
+		final int n = inValues.length;
+		if (heap.length < k) {
+			heap = new int[k];
+		}
+		int size = 0;
+		for (int i = 0; i < n; i++) {
+			if (size < k) {
+				heap[size] = i;
+				siftUp(inValues, size++);
+			} else if (k > 0 && isSmaller(inValues, heap[0], i)) {
+				heap[0] = i;
+				siftDown(inValues, 0, size);
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			kept[i] = false;
+		}
+		for (int i = 0; i < size; i++) {
+			kept[heap[i]] = true;
+		}
+	}
+
+	/** Orders by value, and on equal values the later index is smaller */
+	private static boolean isSmaller(double[] inValues, int a, int b) {
+		return inValues[a] < inValues[b]
+				|| (inValues[a] == inValues[b] && a > b);
+	}
+
+	private void siftUp(double[] inValues, int index) {
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+			if (!isSmaller(inValues, heap[index], heap[parent])) {
+				return;
+			}
+			swap(index, parent);
+			index = parent;
+		}
+	}
+
+	private void siftDown(double[] inValues, int index, int size) {
+		while (true) {
+			int smallest = index;
+			int left = 2 * index + 1;
+			int right = left + 1;
+			if (left < size && isSmaller(inValues, heap[left], heap[smallest])) {
+				smallest = left;
+			}
+			if (right < size
+					&& isSmaller(inValues, heap[right], heap[smallest])) {
+				smallest = right;
+			}
+			if (smallest == index) {
+				return;
+			}
+			swap(index, smallest);
+			index = smallest;
+		}
+	}
+
+	private void swap(int a, int b) {
+		int tmp = heap[a];
+		heap[a] = heap[b];
+		heap[b] = tmp;
+	}
+
+	/** @return the values of the slices produced by the last aggregation */
+	public double[] getValues() {
+		return values;
+	}
+
+	/** @return the names of the slices produced by the last aggregation */
+	public String[] getNames() {
+		return names;
+	}
+
+	/**
+	 * @return the slice that the input value at the given index ended up in
+	 */
+	public int getSliceOf(int inputIndex) {
+		return sliceOf[inputIndex];
+	}
+
+	/**
+	 * @return index of the "Other" slice, or -1 if nothing was folded
+	 */
+	public int getOtherIndex() {
+		return otherIndex;
+	}
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright 2014 Riyaz Ahamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package ahamed.view.tests;
+
+import ahamed.view.ChooserTop;
+import android.content.Context;
+import android.test.AndroidTestCase;
+import android.util.Log;
+import android.view.View;
+import android.view.View.MeasureSpec;
+
+/**
+ * <p>
+ * Measures and lays out a {@link ChooserTop} with 5, 20 and 100 tabs. Checks
+ * that a pass over children of equal height measures each child once, that a
+ * layout request of the chooser alone measures and lays out no child, and logs
+ * the time of a pass with and without the measure cache.
+ * </p>
+ * Run with
+ *
+ * <pre>
+ * adb shell am instrument -w -e class ahamed.view.tests.ChooserLayoutBenchmark \
+ *         ahamed.view.tests/android.test.InstrumentationTestRunner
+ * </pre>
+ */
+public class ChooserLayoutBenchmark extends AndroidTestCase {
+
+	private static final String TAG = ChooserLayoutBenchmark.class
+			.getSimpleName();
+
+	private static final int[] CHILD_COUNTS = { 5, 20, 100 };
+	private static final int CHILD_HEIGHT = 48;
+	private static final int WIDTH = 1080;
+	private static final int HEIGHT = 200;
+	private static final int ITERATIONS = 1000;
+
+	/** A tab of fixed height that counts its measure and layout passes */
+	private static class CountingView extends View {
+
+		int measures = 0;
+		int layouts = 0;
+
+		CountingView(Context context) {
+			super(context);
+		}
+
+		@Override
+		protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+			measures++;
+			setMeasuredDimension(MeasureSpec.getSize(widthMeasureSpec),
+					CHILD_HEIGHT);
+		}
+
+		@Override
+		protected void onLayout(boolean changed, int left, int top,
+				int right, int bottom) {
+			layouts++;
+		}
+	}
+
+	public void testSinglePassMeasure() {
+		for (int count : CHILD_COUNTS) {
+			ChooserTop chooser = createChooser(count);
+			fnMeasureAndLayout(chooser, WIDTH);
+			for (int i = 0; i < count; i++) {
+				CountingView child = (CountingView) chooser.getChildAt(i);
+				assertEquals(count + " children", 1, child.measures);
+				assertEquals(count + " children", 1, child.layouts);
+			}
+		}
+	}
+
+	public void testCachedRelayout() {
+		for (int count : CHILD_COUNTS) {
+			ChooserTop chooser = createChooser(count);
+			fnMeasureAndLayout(chooser, WIDTH);
+			fnResetCounts(chooser);
+
+			chooser.requestLayout();
+			fnMeasureAndLayout(chooser, WIDTH);
+			for (int i = 0; i < count; i++) {
+				CountingView child = (CountingView) chooser.getChildAt(i);
+				assertEquals(count + " children", 0, child.measures);
+				assertEquals(count + " children", 0, child.layouts);
+			}
+		}
+	}
+
+	public void testLayoutTime() {
+		for (int count : CHILD_COUNTS) {
+			ChooserTop chooser = createChooser(count);
+			fnMeasureAndLayout(chooser, WIDTH);
+
+			long lStart = System.nanoTime();
+			for (int i = 0; i < ITERATIONS; i++) {
+				chooser.requestLayout();
+				fnMeasureAndLayout(chooser, WIDTH);
+			}
+			long lCached = (System.nanoTime() - lStart) / ITERATIONS;
+
+			// alternating widths miss the cache on every pass
+			lStart = System.nanoTime();
+			for (int i = 0; i < ITERATIONS; i++) {
+				fnMeasureAndLayout(chooser, WIDTH - i % 2);
+			}
+			long lUncached = (System.nanoTime() - lStart) / ITERATIONS;
+
+			Log.i(TAG, count + " children: " + lCached + " ns cached, "
+					+ lUncached + " ns uncached per measure and layout");
+		}
+	}
+
+	private ChooserTop createChooser(int count) {
+		ChooserTop chooser = new ChooserTop(getContext(), null);
+		for (int i = 0; i < count; i++) {
+			chooser.addView(new CountingView(getContext()));
+		}
+		return chooser;
+	}
+
+	private static void fnMeasureAndLayout(View view, int width) {
+		view.measure(MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY),
+				MeasureSpec.makeMeasureSpec(HEIGHT, MeasureSpec.AT_MOST));
+		view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+	}
+
+	private static void fnResetCounts(ChooserTop chooser) {
+		for (int i = 0; i < chooser.getChildCount(); i++) {
+			CountingView child = (CountingView) chooser.getChildAt(i);
+			child.measures = 0;
+			child.layouts = 0;
+		}
+	}
+}